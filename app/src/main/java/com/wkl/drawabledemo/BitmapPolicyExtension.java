@@ -0,0 +1,51 @@
+package com.wkl.drawabledemo;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.annotation.GlideExtension;
+import com.bumptech.glide.annotation.GlideOption;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.BaseRequestOptions;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 按请求选择位图格式, 生成到 GlideRequest / GlideOptions 中
+ * 默认允许 HARDWARE, 位图不占 java 堆; 带有非缩放类 transformation 的请求 Glide 会自动退回 ARGB_8888
+ * 需要读像素或者绘制到软件 Canvas 的请求使用 {@link #softwareBitmap}, 忘记使用时由 {@link SoftwareBitmapFallbackListener} 兜底
+ */
+@GlideExtension
+public final class BitmapPolicyExtension {
+
+    private BitmapPolicyExtension() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 列表缩略图之类对画质要求不高的图片: 解码尺寸不超过 target, 采样率向大取整, 宁可略小也不解码比 View 更大的位图
+     * O 以上仍然使用 HARDWARE (RGB_565 会让 Glide 放弃 HARDWARE, 占用 java 堆), 以下使用 RGB_565, 有透明度的图片仍然是 ARGB_8888
+     */
+    @NonNull
+    @GlideOption
+    public static BaseRequestOptions<?> lowMemoryBitmap(@NonNull BaseRequestOptions<?> options) {
+        final BaseRequestOptions<?> downsampled = options.downsample(DownsampleStrategy.AT_MOST);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return downsampled;
+        }
+        return downsampled.format(DecodeFormat.PREFER_RGB_565);
+    }
+
+    /**
+     * 目标会读取像素 (Palette, getPixels) 或者绘制到软件 Canvas 时使用, HARDWARE 位图不支持这些操作
+     */
+    @NonNull
+    @GlideOption
+    public static BaseRequestOptions<?> softwareBitmap(@NonNull BaseRequestOptions<?> options) {
+        return options.format(DecodeFormat.PREFER_ARGB_8888).disallowHardwareConfig();
+    }
+}
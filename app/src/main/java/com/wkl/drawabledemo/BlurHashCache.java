@@ -0,0 +1,147 @@
+package com.wkl.drawabledemo;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * BlurHash 预览位图缓存, 以 hash 为 key, 在子线程解码, 结果在主线程回调
+ * 同一个 hash 同时只解码一次, 除 {@link #get(String)} 外只在主线程使用
+ */
+final class BlurHashCache {
+
+    private static final String TAG = "BlurHashCache";
+
+    /**
+     * 解码尺寸, 绘制时放大到 bounds, 再大看不出区别
+     */
+    static final int PREVIEW_SIZE = 32;
+
+    private static final int MAX_BYTES = 1024 * 1024;
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<String, Bitmap>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getAllocationByteCount();
+        }
+    };
+
+    private static final HashMap<String, ArrayList<Callback>> sPending = new HashMap<>();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService sExecutor;
+
+    interface Callback {
+        void onPreviewDecoded(@NonNull String hash, @NonNull Bitmap bitmap);
+    }
+
+    private BlurHashCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    static Bitmap get(@NonNull String hash) {
+        return sCache.get(hash);
+    }
+
+    /**
+     * 提交解码, 完成后在主线程回调, 解码失败时不回调
+     */
+    static void load(@NonNull final String hash, @NonNull Callback callback) {
+        ArrayList<Callback> callbacks = sPending.get(hash);
+        if (callbacks != null) {
+            if (!callbacks.contains(callback)) {
+                callbacks.add(callback);
+            }
+            return;
+        }
+        callbacks = new ArrayList<>(2);
+        callbacks.add(callback);
+        sPending.put(hash, callbacks);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                try {
+                    bitmap = BlurHashDecoder.decode(hash, PREVIEW_SIZE, PREVIEW_SIZE);
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+                if (bitmap == null) {
+                    Log.w(TAG, "Invalid blur hash: " + hash);
+                }
+                final Bitmap result = bitmap;
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(hash, result);
+                    }
+                });
+            }
+        });
+    }
+
+    static void cancel(@NonNull String hash, @NonNull Callback callback) {
+        final ArrayList<Callback> callbacks = sPending.get(hash);
+        if (callbacks != null) {
+            callbacks.remove(callback);
+        }
+    }
+
+    static void clear() {
+        sCache.evictAll();
+    }
+
+    static void trimMemory(int level) {
+        GlideMemoryPolicy.trimCache(sCache, level);
+    }
+
+    private static void deliver(@NonNull String hash, @Nullable Bitmap bitmap) {
+        final ArrayList<Callback> callbacks = sPending.remove(hash);
+        if (bitmap == null) {
+            return;
+        }
+        sCache.put(hash, bitmap);
+        if (callbacks != null) {
+            for (int i = 0; i < callbacks.size(); i++) {
+                callbacks.get(i).onPreviewDecoded(hash, bitmap);
+            }
+        }
+    }
+
+    private static Executor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+}
@@ -0,0 +1,129 @@
+package com.wkl.drawabledemo;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * BlurHash 解码, 见 https://github.com/woltapp/blurhash
+ * 只用来生成很小的预览位图, 绘制时再放大, 在子线程调用
+ */
+final class BlurHashDecoder {
+
+    private static final String CHARS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHashDecoder() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return 解码后的位图, hash 不合法时返回 null
+     */
+    @Nullable
+    static Bitmap decode(@NonNull String hash, int width, int height) {
+        if (hash.length() < 6 || width <= 0 || height <= 0) {
+            return null;
+        }
+        final int sizeFlag = decode83(hash, 0, 1);
+        final int numY = sizeFlag / 9 + 1;
+        final int numX = sizeFlag % 9 + 1;
+        if (sizeFlag < 0 || hash.length() != 4 + 2 * numX * numY) {
+            return null;
+        }
+        final int quantMax = decode83(hash, 1, 2);
+        if (quantMax < 0) {
+            return null;
+        }
+        final float maxValue = (quantMax + 1) / 166f;
+
+        final float[] colors = new float[numX * numY * 3];
+        final int dc = decode83(hash, 2, 6);
+        if (dc < 0) {
+            return null;
+        }
+        colors[0] = srgbToLinear(dc >> 16);
+        colors[1] = srgbToLinear((dc >> 8) & 0xFF);
+        colors[2] = srgbToLinear(dc & 0xFF);
+        for (int i = 1; i < numX * numY; i++) {
+            final int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+            if (ac < 0) {
+                return null;
+            }
+            colors[i * 3] = signPow((ac / (19 * 19) - 9) / 9f) * maxValue;
+            colors[i * 3 + 1] = signPow(((ac / 19) % 19 - 9) / 9f) * maxValue;
+            colors[i * 3 + 2] = signPow((ac % 19 - 9) / 9f) * maxValue;
+        }
+
+        // 余弦只和坐标以及分量下标有关, 先算好避免在像素循环里重复计算
+        final float[] cosX = new float[width * numX];
+        for (int x = 0; x < width; x++) {
+            for (int i = 0; i < numX; i++) {
+                cosX[x * numX + i] = (float) Math.cos(Math.PI * x * i / width);
+            }
+        }
+        final float[] cosY = new float[height * numY];
+        for (int y = 0; y < height; y++) {
+            for (int j = 0; j < numY; j++) {
+                cosY[y * numY + j] = (float) Math.cos(Math.PI * y * j / height);
+            }
+        }
+
+        final int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int j = 0; j < numY; j++) {
+                    final float basisY = cosY[y * numY + j];
+                    for (int i = 0; i < numX; i++) {
+                        final float basis = cosX[x * numX + i] * basisY;
+                        final int index = (j * numX + i) * 3;
+                        r += colors[index] * basis;
+                        g += colors[index + 1] * basis;
+                        b += colors[index + 2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xFF000000 | (linearToSrgb(r) << 16)
+                        | (linearToSrgb(g) << 8) | linearToSrgb(b);
+            }
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        // BlurHash 没有透明度, 标记后占位图可以报告为不透明
+        bitmap.setHasAlpha(false);
+        return bitmap;
+    }
+
+    private static int decode83(@NonNull String str, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            final int index = CHARS.indexOf(str.charAt(i));
+            if (index < 0) {
+                return -1;
+            }
+            result = result * 83 + index;
+        }
+        return result;
+    }
+
+    private static float srgbToLinear(int value) {
+        final float v = value / 255f;
+        return v <= 0.04045f ? v / 12.92f : (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        final float v = Math.max(0f, Math.min(1f, value));
+        if (v <= 0.0031308f) {
+            return (int) (v * 12.92f * 255 + 0.5f);
+        }
+        return (int) ((1.055f * (float) Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static float signPow(float value) {
+        return Math.copySign(value * value, value);
+    }
+}
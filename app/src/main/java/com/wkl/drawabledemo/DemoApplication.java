@@ -0,0 +1,21 @@
+package com.wkl.drawabledemo;
+
+import android.app.Application;
+import android.os.AsyncTask;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ */
+public class DemoApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // 在子线程提前注册以及 inflate, 首次 setContentView 和列表绑定时直接使用
+        DrawableEnjector.enjectAsync(AsyncTask.THREAD_POOL_EXECUTOR);
+        PlaceholderPreloader.preload(this, AsyncTask.THREAD_POOL_EXECUTOR,
+                R.drawable.common_default_img, R.drawable.common_default_img2);
+    }
+}
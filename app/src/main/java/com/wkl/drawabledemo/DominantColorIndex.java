@@ -0,0 +1,277 @@
+package com.wkl.drawabledemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 图片主色的持久化索引, 以 model 的 hash 为 key, 下次启动时加载前就能用图片的真实颜色绘制占位图
+ * 文件是固定大小的开放寻址哈希表, 通过 mmap 读写, 槽位满时覆盖旧的记录, 磁盘占用固定
+ * 文件在第一次使用时于子线程加载到内存, 主线程只读内存中的数组, 不会等待 IO
+ */
+public final class DominantColorIndex {
+
+    private static final String FILE_NAME = "placeholder_colors.idx";
+    private static final int MAGIC = 0x50434931;
+    private static final int HEADER_SIZE = 8;
+    private static final int SLOT_SIZE = 8;
+    /**
+     * 槽位数, 必须是 2 的幂, 文件大小 8 + 4096 * 8 = 32KB
+     */
+    private static final int SLOT_COUNT = 4096;
+    private static final int MAX_PROBE = 8;
+
+    /**
+     * 缩小到这个尺寸后再取平均色
+     */
+    static final int SAMPLE_SIZE = 8;
+
+    private static volatile DominantColorIndex sInstance;
+
+    private final File mFile;
+    private final Executor mExecutor = AsyncTask.SERIAL_EXECUTOR;
+    private final int[] mKeys = new int[SLOT_COUNT];
+    private final int[] mColors = new int[SLOT_COUNT];
+    private volatile boolean mLoaded;
+    private boolean mLoadRequested;
+    private MappedByteBuffer mBuffer;
+
+    private DominantColorIndex(@NonNull File file) {
+        mFile = file;
+    }
+
+    @NonNull
+    public static DominantColorIndex get(@NonNull Context context) {
+        if (sInstance == null) {
+            synchronized (DominantColorIndex.class) {
+                if (sInstance == null) {
+                    sInstance = new DominantColorIndex(
+                            new File(context.getApplicationContext().getCacheDir(), FILE_NAME));
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * 不阻塞, 索引还没加载完或者没有记录时返回 fallback
+     */
+    @ColorInt
+    public int getColor(@Nullable Object model, @ColorInt int fallback) {
+        if (model == null) {
+            return fallback;
+        }
+        if (!mLoaded) {
+            loadAsync();
+            return fallback;
+        }
+        final int key = keyOf(model);
+        synchronized (this) {
+            final int slot = findSlot(key);
+            return slot >= 0 && mKeys[slot] == key ? mColors[slot] : fallback;
+        }
+    }
+
+    /**
+     * 在子线程写入, sample 是已经缩小过的位图, 写入后回收
+     */
+    void put(@NonNull Object model, @NonNull final Bitmap sample) {
+        final int key = keyOf(model);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                record(key, sample);
+            }
+        });
+    }
+
+    /**
+     * HARDWARE 位图不能直接缩放取色, 在子线程拷贝成 ARGB_8888 后再缩小
+     * 拷贝前图片可能已经被 Glide 释放, 这时放弃这次记录
+     */
+    void putHardware(@NonNull Object model, @NonNull final Bitmap bitmap) {
+        final int key = keyOf(model);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap sample;
+                try {
+                    if (bitmap.isRecycled()) {
+                        return;
+                    }
+                    final Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+                    if (copy == null) {
+                        return;
+                    }
+                    sample = Bitmap.createScaledBitmap(copy, SAMPLE_SIZE, SAMPLE_SIZE, true);
+                    if (sample != copy) {
+                        copy.recycle();
+                    }
+                } catch (RuntimeException e) {
+                    // 拷贝过程中被回收
+                    return;
+                }
+                record(key, sample);
+            }
+        });
+    }
+
+    /**
+     * 只在 mExecutor 中调用
+     */
+    private void record(int key, @NonNull Bitmap sample) {
+        final int color = averageColor(sample);
+        sample.recycle();
+        ensureLoaded();
+        write(key, color);
+    }
+
+    boolean contains(@NonNull Object model) {
+        if (!mLoaded) {
+            return false;
+        }
+        final int key = keyOf(model);
+        synchronized (this) {
+            final int slot = findSlot(key);
+            return slot >= 0 && mKeys[slot] == key;
+        }
+    }
+
+    private void loadAsync() {
+        synchronized (this) {
+            if (mLoadRequested) {
+                return;
+            }
+            mLoadRequested = true;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+            }
+        });
+    }
+
+    /**
+     * 只在 mExecutor 中调用
+     */
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        final int length = HEADER_SIZE + SLOT_COUNT * SLOT_SIZE;
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+            try {
+                final boolean fresh = raf.length() != length;
+                if (fresh) {
+                    raf.setLength(0);
+                    raf.setLength(length);
+                }
+                // mapping 在 channel 关闭后依然有效
+                final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+                if (fresh || buffer.getInt(0) != MAGIC || buffer.getInt(4) != SLOT_COUNT) {
+                    for (int i = 0; i < length; i += 4) {
+                        buffer.putInt(i, 0);
+                    }
+                    buffer.putInt(0, MAGIC);
+                    buffer.putInt(4, SLOT_COUNT);
+                }
+                synchronized (this) {
+                    for (int i = 0; i < SLOT_COUNT; i++) {
+                        final int offset = HEADER_SIZE + i * SLOT_SIZE;
+                        mKeys[i] = buffer.getInt(offset);
+                        mColors[i] = buffer.getInt(offset + 4);
+                    }
+                    mBuffer = buffer;
+                }
+            } finally {
+                raf.close();
+            }
+        } catch (Throwable e) {
+            // 文件不可用时退化为只在内存中记录
+            e.printStackTrace();
+        }
+        mLoaded = true;
+    }
+
+    private void write(int key, int color) {
+        synchronized (this) {
+            int slot = findSlot(key);
+            if (slot < 0) {
+                // 探测范围内都被占用, 覆盖起始位置的旧记录
+                slot = key & (SLOT_COUNT - 1);
+            }
+            if (mKeys[slot] == key && mColors[slot] == color) {
+                return;
+            }
+            mKeys[slot] = key;
+            mColors[slot] = color;
+            if (mBuffer != null) {
+                final int offset = HEADER_SIZE + slot * SLOT_SIZE;
+                mBuffer.putInt(offset, key);
+                mBuffer.putInt(offset + 4, color);
+            }
+        }
+    }
+
+    /**
+     * @return key 所在的槽位或者第一个空槽位, 都没有时返回 -1
+     */
+    private int findSlot(int key) {
+        final int start = key & (SLOT_COUNT - 1);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            final int slot = (start + i) & (SLOT_COUNT - 1);
+            if (mKeys[slot] == key || mKeys[slot] == 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 0 表示空槽位, 不作为 key 使用
+     */
+    private static int keyOf(@NonNull Object model) {
+        int h = model.toString().hashCode();
+        h ^= (h >>> 16);
+        return h == 0 ? 1 : h;
+    }
+
+    private static int averageColor(@NonNull Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        final int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        long r = 0, g = 0, b = 0;
+        int count = 0;
+        for (int pixel : pixels) {
+            // 忽略透明像素, 避免 png 的透明区域把颜色拉暗
+            if ((pixel >>> 24) < 0x80) {
+                continue;
+            }
+            r += (pixel >> 16) & 0xFF;
+            g += (pixel >> 8) & 0xFF;
+            b += pixel & 0xFF;
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        return 0xFF000000 | (int) (r / count) << 16 | (int) (g / count) << 8 | (int) (b / count);
+    }
+}
@@ -0,0 +1,61 @@
+package com.wkl.drawabledemo;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * Glide 全局的 RequestListener, 图片加载成功后记录主色到 {@link DominantColorIndex}
+ * 主线程只做一次很小的缩放, 取色和写文件在子线程; HARDWARE 位图不能在主线程缩放, 在子线程拷贝后再取色
+ */
+final class DominantColorListener implements RequestListener<Object> {
+
+    private final DominantColorIndex mIndex;
+
+    DominantColorListener(@NonNull DominantColorIndex index) {
+        mIndex = index;
+    }
+
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Object> target,
+                                boolean isFirstResource) {
+        return false;
+    }
+
+    @Override
+    public boolean onResourceReady(Object resource, Object model, Target<Object> target,
+                                   DataSource dataSource, boolean isFirstResource) {
+        if (model == null || !(resource instanceof BitmapDrawable) || mIndex.contains(model)) {
+            return false;
+        }
+        final Bitmap bitmap = ((BitmapDrawable) resource).getBitmap();
+        if (bitmap == null || bitmap.isRecycled()) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+            // 读取 HARDWARE 位图的像素需要从 GPU 拷贝整张图, 不能放在主线程
+            mIndex.putHardware(model, bitmap);
+            return false;
+        }
+        // 原图之后可能被回收到 BitmapPool, 子线程只能使用自己的拷贝
+        final Bitmap sample = Bitmap.createScaledBitmap(bitmap,
+                DominantColorIndex.SAMPLE_SIZE, DominantColorIndex.SAMPLE_SIZE, true);
+        if (sample == bitmap) {
+            return false;
+        }
+        mIndex.put(model, sample);
+        return false;
+    }
+}
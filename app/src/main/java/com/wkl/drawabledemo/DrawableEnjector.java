@@ -3,42 +3,88 @@ package com.wkl.drawabledemo;
 import android.content.Context;
 import android.content.res.Resources;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 
+import androidx.annotation.NonNull;
+
 import org.xmlpull.v1.XmlPullParser;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
  * <p>
  * On 2019-07-02
+ * <p>
+ * ResourceManagerInternal.InflateDelegate 是 private 接口, 只能通过 Proxy 实现.
+ * 反射查找只做一次, 重复调用 {@link #enject()} 直接返回;
+ * 可以在 Application 中调用 {@link #enjectAsync(Executor)} 提前在子线程注册,
+ * 首次 setContentView 前调用 {@link #enject()} 会等待子线程注册完成
  */
 public class DrawableEnjector {
 
+    private static final Object sLock = new Object();
+    private static volatile boolean sEnjected;
+    private static volatile long sEnjectCostNanos = -1;
+    private static FutureTask<Void> sTask;
+
     private DrawableEnjector() {
         throw new UnsupportedOperationException();
     }
 
     public static void enject() {
+        if (sEnjected) {
+            return;
+        }
+        final FutureTask<Void> task = obtainTask();
+        // 已经在子线程执行时 run 直接返回, get 等待其完成
+        task.run();
+        try {
+            task.get();
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void enjectAsync(@NonNull Executor executor) {
+        if (sEnjected) {
+            return;
+        }
+        executor.execute(obtainTask());
+    }
+
+    /**
+     * @return 注册耗时, 还未注册时返回 -1
+     */
+    public static long getEnjectCostNanos() {
+        return sEnjectCostNanos;
+    }
+
+    private static FutureTask<Void> obtainTask() {
+        synchronized (sLock) {
+            if (sTask == null) {
+                sTask = new FutureTask<>(new Runnable() {
+                    @Override
+                    public void run() {
+                        register();
+                    }
+                }, null);
+            }
+            return sTask;
+        }
+    }
+
+    private static void register() {
+        final long start = SystemClock.elapsedRealtimeNanos();
         try {
             Class<?> delegateClass = Class.forName("androidx.appcompat.widget.ResourceManagerInternal$InflateDelegate");
-            Object delegateIns = Proxy.newProxyInstance(DrawableEnjector.class.getClassLoader(), new Class[]{delegateClass},
-                    new InvocationHandler() {
-                        @Override
-                        public Object invoke(Object proxy, Method method, Object[] args) {
-                            try {
-                                Context c = (Context) args[0];
-                                return PlaceholderDrawable.createFromXmlInner(c.getResources(), (XmlPullParser) args[1],
-                                        (AttributeSet) args[2], (Resources.Theme) args[3]);
-                            } catch (Throwable e) {
-                                e.printStackTrace();
-                            }
-                            return null;
-                        }
-                    });
+            Object delegateIns = Proxy.newProxyInstance(DrawableEnjector.class.getClassLoader(),
+                    new Class[]{delegateClass}, new InflateHandler());
             Class<?> appcompat = Class.forName("androidx.appcompat.widget.ResourceManagerInternal");
             Method get = appcompat.getMethod("get");
 
@@ -47,13 +93,48 @@ public class DrawableEnjector {
             Method addDelegate = appcompat.getDeclaredMethod("addDelegate", String.class, delegateClass);
             addDelegate.setAccessible(true);
 
-            addDelegate.invoke(appcompatIns, PlaceholderDrawable.class.getSimpleName(), delegateIns);
-            if (Build.VERSION.SDK_INT < 24) {
-                addDelegate.invoke(appcompatIns, PlaceholderDrawable.class.getName(), delegateIns);
+            // ResourceManagerInternal 的 getDrawable 以实例加锁, 在子线程注册时保证主线程可见
+            synchronized (appcompatIns) {
+                addDelegate.invoke(appcompatIns, PlaceholderDrawable.class.getSimpleName(), delegateIns);
+                if (Build.VERSION.SDK_INT < 24) {
+                    addDelegate.invoke(appcompatIns, PlaceholderDrawable.class.getName(), delegateIns);
+                }
             }
 
         } catch (Throwable e) {
             e.printStackTrace();
+        } finally {
+            sEnjectCostNanos = SystemClock.elapsedRealtimeNanos() - start;
+            sEnjected = true;
+            PlaceholderMetrics.enjected(sEnjectCostNanos);
+        }
+    }
+
+    /**
+     * InflateDelegate 只有 createFromXmlInner 一个方法, 其余都是 Object 的方法
+     */
+    private static final class InflateHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return InflateHandler.class.getName();
+                }
+            }
+            try {
+                Context c = (Context) args[0];
+                return PlaceholderDrawable.createFromXmlInner(c.getResources(), (XmlPullParser) args[1],
+                        (AttributeSet) args[2], (Resources.Theme) args[3]);
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+            return null;
         }
     }
 }
@@ -0,0 +1,300 @@
+package com.wkl.drawabledemo;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.ActivityManagerCompat;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.MemoryCategory;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * Glide 以及占位图缓存的内存策略
+ * 初始大小按设备等级在 MemorySizeCalculator 的默认值上缩放, 收到 onTrimMemory 后降低 Glide 的 MemoryCategory
+ * 并裁剪占位图的缓存, 回到前台后恢复
+ */
+public final class GlideMemoryPolicy implements ComponentCallbacks2, Application.ActivityLifecycleCallbacks {
+
+    private static volatile GlideMemoryPolicy sInstance;
+
+    private final float mMultiplier;
+    private final LruResourceCache mMemoryCache;
+    private final LruBitmapPool mBitmapPool;
+    private final int mPlaceholderCacheSize;
+    private Glide mGlide;
+    private boolean mLowered;
+    private volatile int mLastTrimLevel;
+
+    private GlideMemoryPolicy(@NonNull Context context) {
+        mMultiplier = multiplier(context);
+        final MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context).build();
+        mMemoryCache = new LruResourceCache((long) (mMultiplier * calculator.getMemoryCacheSize()));
+        final long poolSize = (long) (mMultiplier * calculator.getBitmapPoolSize());
+        // 占位图缓存淘汰的位图不还给 BitmapPool, 它的预算从 BitmapPool 中划出, 两者合计不超过 Glide 的预算
+        mPlaceholderCacheSize = (int) (poolSize / 8);
+        mBitmapPool = new LruBitmapPool(poolSize - mPlaceholderCacheSize);
+    }
+
+    /**
+     * 在 GlideModule.applyOptions 中创建, 之后把 {@link #getMemoryCache()} 和 {@link #getBitmapPool()} 交给 GlideBuilder
+     */
+    @NonNull
+    static GlideMemoryPolicy create(@NonNull Context context) {
+        final GlideMemoryPolicy policy = new GlideMemoryPolicy(context.getApplicationContext());
+        sInstance = policy;
+        return policy;
+    }
+
+    @Nullable
+    public static GlideMemoryPolicy get() {
+        return sInstance;
+    }
+
+    /**
+     * 低内存设备使用默认值的 0.8 倍, 内存充足的设备适当放大
+     */
+    private static float multiplier(@NonNull Context context) {
+        final ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) {
+            return 1f;
+        }
+        if (ActivityManagerCompat.isLowRamDevice(am)) {
+            return 0.8f;
+        }
+        final int memoryClass = am.getMemoryClass();
+        if (memoryClass >= 384) {
+            return 1.5f;
+        }
+        if (memoryClass >= 192) {
+            return 1.2f;
+        }
+        return 1f;
+    }
+
+    @NonNull
+    LruResourceCache getMemoryCache() {
+        return mMemoryCache;
+    }
+
+    @NonNull
+    LruBitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    /**
+     * 占位图光栅化缓存的预算, 从 BitmapPool 的预算中划出 1/8
+     */
+    int getPlaceholderCacheSize() {
+        return mPlaceholderCacheSize;
+    }
+
+    /**
+     * 在 GlideModule.registerComponents 中调用, 开始监听内存以及前后台
+     */
+    void attach(@NonNull Context context, @NonNull Glide glide) {
+        mGlide = glide;
+        final Context app = context.getApplicationContext();
+        app.registerComponentCallbacks(this);
+        if (app instanceof Application) {
+            ((Application) app).registerActivityLifecycleCallbacks(this);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        mLastTrimLevel = level;
+        // Glide 自己会按 level 裁剪内存缓存和 BitmapPool, 这里只调整之后的上限和占位图的缓存
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            setLowered(true);
+        }
+        PlaceholderBitmapCache.trimMemory(level);
+        LogoBitmapCache.trimMemory(level);
+        BlurHashCache.trimMemory(level);
+        PlaceholderStateCache.trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    private void setLowered(boolean lowered) {
+        if (mLowered != lowered && mGlide != null) {
+            mLowered = lowered;
+            mGlide.setMemoryCategory(lowered ? MemoryCategory.LOW : MemoryCategory.NORMAL);
+        }
+    }
+
+    /**
+     * 按 level 裁剪 LruCache: 进程进入后台或者内存严重不足时清空, UI 隐藏或者内存偏低时减半
+     */
+    static void trimCache(@NonNull LruCache<?, ?> cache, int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    @NonNull
+    public Stats getStats() {
+        final PlaceholderBitmapCache placeholders = PlaceholderBitmapCache.get();
+        return new Stats(mMultiplier, mLowered, mLastTrimLevel,
+                mMemoryCache.getCurrentSize(), mMemoryCache.getMaxSize(),
+                mBitmapPool.getCurrentSize(), mBitmapPool.getMaxSize(),
+                mBitmapPool.hitCount(), mBitmapPool.missCount(), mBitmapPool.evictionCount(),
+                placeholders != null ? placeholders.hitCount() : 0,
+                placeholders != null ? placeholders.missCount() : 0,
+                placeholders != null ? placeholders.evictionCount() : 0);
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        // 回到前台, 恢复正常的缓存上限
+        setLowered(false);
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+    }
+
+    public static final class Stats {
+        private final float mMultiplier;
+        private final boolean mLowered;
+        private final int mLastTrimLevel;
+        private final long mMemoryCacheSize;
+        private final long mMemoryCacheMaxSize;
+        private final long mBitmapPoolSize;
+        private final long mBitmapPoolMaxSize;
+        private final long mBitmapPoolHits;
+        private final long mBitmapPoolMisses;
+        private final long mBitmapPoolEvictions;
+        private final long mPlaceholderHits;
+        private final long mPlaceholderMisses;
+        private final long mPlaceholderEvictions;
+
+        Stats(float multiplier, boolean lowered, int lastTrimLevel,
+              long memoryCacheSize, long memoryCacheMaxSize, long bitmapPoolSize, long bitmapPoolMaxSize,
+              long bitmapPoolHits, long bitmapPoolMisses, long bitmapPoolEvictions,
+              long placeholderHits, long placeholderMisses, long placeholderEvictions) {
+            mMultiplier = multiplier;
+            mLowered = lowered;
+            mLastTrimLevel = lastTrimLevel;
+            mMemoryCacheSize = memoryCacheSize;
+            mMemoryCacheMaxSize = memoryCacheMaxSize;
+            mBitmapPoolSize = bitmapPoolSize;
+            mBitmapPoolMaxSize = bitmapPoolMaxSize;
+            mBitmapPoolHits = bitmapPoolHits;
+            mBitmapPoolMisses = bitmapPoolMisses;
+            mBitmapPoolEvictions = bitmapPoolEvictions;
+            mPlaceholderHits = placeholderHits;
+            mPlaceholderMisses = placeholderMisses;
+            mPlaceholderEvictions = placeholderEvictions;
+        }
+
+        public float getMultiplier() {
+            return mMultiplier;
+        }
+
+        public boolean isLowered() {
+            return mLowered;
+        }
+
+        public int getLastTrimLevel() {
+            return mLastTrimLevel;
+        }
+
+        public long getMemoryCacheSize() {
+            return mMemoryCacheSize;
+        }
+
+        public long getMemoryCacheMaxSize() {
+            return mMemoryCacheMaxSize;
+        }
+
+        public long getBitmapPoolSize() {
+            return mBitmapPoolSize;
+        }
+
+        public long getBitmapPoolMaxSize() {
+            return mBitmapPoolMaxSize;
+        }
+
+        public long getBitmapPoolHits() {
+            return mBitmapPoolHits;
+        }
+
+        public long getBitmapPoolMisses() {
+            return mBitmapPoolMisses;
+        }
+
+        public long getBitmapPoolEvictions() {
+            return mBitmapPoolEvictions;
+        }
+
+        public long getPlaceholderHits() {
+            return mPlaceholderHits;
+        }
+
+        public long getPlaceholderMisses() {
+            return mPlaceholderMisses;
+        }
+
+        public long getPlaceholderEvictions() {
+            return mPlaceholderEvictions;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Stats{multiplier=" + mMultiplier
+                    + ", lowered=" + mLowered
+                    + ", lastTrimLevel=" + mLastTrimLevel
+                    + ", memoryCache=" + mMemoryCacheSize + "/" + mMemoryCacheMaxSize
+                    + ", bitmapPool=" + mBitmapPoolSize + "/" + mBitmapPoolMaxSize
+                    + " (hits=" + mBitmapPoolHits + ", misses=" + mBitmapPoolMisses
+                    + ", evictions=" + mBitmapPoolEvictions + ")"
+                    + ", placeholders (hits=" + mPlaceholderHits + ", misses=" + mPlaceholderMisses
+                    + ", evictions=" + mPlaceholderEvictions + ")}";
+        }
+    }
+}
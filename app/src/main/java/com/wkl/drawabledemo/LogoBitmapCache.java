@@ -0,0 +1,255 @@
+package com.wkl.drawabledemo;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 缩小后的 logo 位图缓存, 相同 logo 相同尺寸只解码一次
+ * 有资源 id 时按目标尺寸采样解码, key 带上解析 logo 时的 Configuration (density, 夜间模式等), 否则从已有位图缩放
+ * 解码和缩放都在子线程, 结果在主线程回调; 同一个 key 同时只解码一次, 除 {@link #get(Key)} 外只在主线程使用
+ */
+final class LogoBitmapCache {
+
+    private static final String TAG = "LogoBitmapCache";
+
+    private static final int MAX_BYTES = 2 * 1024 * 1024;
+
+    private static final LruCache<Key, Bitmap> sCache = new LruCache<Key, Bitmap>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(Key key, Bitmap value) {
+            return value.getAllocationByteCount();
+        }
+    };
+
+    private static final HashMap<Key, ArrayList<Callback>> sPending = new HashMap<>();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService sExecutor;
+
+    interface Callback {
+        void onLogoDecoded(@NonNull Key key, @NonNull Bitmap bitmap);
+    }
+
+    private LogoBitmapCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    static Bitmap get(@NonNull Key key) {
+        return sCache.get(key);
+    }
+
+    /**
+     * 提交解码, 完成后在主线程回调, 失败时不回调
+     */
+    static void load(@NonNull final Key key, @NonNull Callback callback) {
+        ArrayList<Callback> callbacks = sPending.get(key);
+        if (callbacks != null) {
+            if (!callbacks.contains(callback)) {
+                callbacks.add(callback);
+            }
+            return;
+        }
+        callbacks = new ArrayList<>(2);
+        callbacks.add(callback);
+        sPending.put(key, callbacks);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                try {
+                    bitmap = decode(key);
+                } catch (Throwable e) {
+                    // 代码设置的源位图可能已经被回收
+                    e.printStackTrace();
+                }
+                final Bitmap result = bitmap;
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(key, result);
+                    }
+                });
+            }
+        });
+    }
+
+    static void cancel(@NonNull Key key, @NonNull Callback callback) {
+        final ArrayList<Callback> callbacks = sPending.get(key);
+        if (callbacks != null) {
+            callbacks.remove(callback);
+        }
+    }
+
+    static void clear() {
+        sCache.evictAll();
+    }
+
+    static void trimMemory(int level) {
+        GlideMemoryPolicy.trimCache(sCache, level);
+    }
+
+    private static void deliver(@NonNull Key key, @Nullable Bitmap bitmap) {
+        final ArrayList<Callback> callbacks = sPending.remove(key);
+        if (bitmap == null) {
+            return;
+        }
+        sCache.put(key, bitmap);
+        if (callbacks != null) {
+            for (int i = 0; i < callbacks.size(); i++) {
+                callbacks.get(i).onLogoDecoded(key, bitmap);
+            }
+        }
+    }
+
+    @Nullable
+    private static Bitmap decode(@NonNull Key key) {
+        if (key.mSource != null) {
+            if (key.mSource.isRecycled()) {
+                return null;
+            }
+            return withoutDensity(Bitmap.createScaledBitmap(key.mSource, key.mWidth, key.mHeight, true));
+        }
+        final Bitmap bitmap = decodeSampled(key.mResources, key.mResId, key.mWidth, key.mHeight);
+        return bitmap != null ? withoutDensity(bitmap) : null;
+    }
+
+    /**
+     * 缩小后的位图已经是最终的像素尺寸, 去掉从资源或源位图带过来的 density,
+     * 否则绘制到软件 Canvas (raster 缓存, 软件 layer) 时会按 canvas density / bitmap density 再缩放一次
+     */
+    @NonNull
+    private static Bitmap withoutDensity(@NonNull Bitmap bitmap) {
+        bitmap.setDensity(Bitmap.DENSITY_NONE);
+        return bitmap;
+    }
+
+    @Nullable
+    private static Bitmap decodeSampled(@NonNull Resources res, @DrawableRes int resId, int width, int height) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(res, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            // 不是位图资源, 例如 vector
+            return null;
+        }
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        final Bitmap decoded = BitmapFactory.decodeResource(res, resId, options);
+        if (decoded == null) {
+            return null;
+        }
+        final Bitmap scaled = Bitmap.createScaledBitmap(decoded, width, height, true);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        return scaled;
+    }
+
+    private static Executor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    static final class Key {
+        /**
+         * 只用于解码, 不参与比较, 同一个资源在相同 Configuration 下解码结果相同
+         */
+        private final Resources mResources;
+        @DrawableRes
+        private final int mResId;
+        private final ResourceConfigKey mConfig;
+        /**
+         * 代码设置的 logo 没有资源 id, 按位图实例区分
+         */
+        private final Bitmap mSource;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mHashCode;
+
+        private Key(@Nullable Resources res, @DrawableRes int resId, @Nullable ResourceConfigKey config,
+                    @Nullable Bitmap source, int width, int height) {
+            mResources = res;
+            mResId = resId;
+            mConfig = config;
+            mSource = source;
+            mWidth = width;
+            mHeight = height;
+            int result = source != null ? System.identityHashCode(source) : 31 * config.hashCode() + resId;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            mHashCode = result;
+        }
+
+        @NonNull
+        static Key forResource(@NonNull Resources res, @DrawableRes int resId, @NonNull ResourceConfigKey config,
+                               int width, int height) {
+            return new Key(res, resId, config, null, width, height);
+        }
+
+        @NonNull
+        static Key forBitmap(@NonNull Bitmap source, int width, int height) {
+            return new Key(null, 0, null, source, width, height);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            if (mHashCode != key.mHashCode || mWidth != key.mWidth || mHeight != key.mHeight
+                    || mSource != key.mSource) {
+                return false;
+            }
+            return mSource != null || (mResId == key.mResId && mConfig.equals(key.mConfig));
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
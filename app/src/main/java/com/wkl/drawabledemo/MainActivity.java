@@ -1,6 +1,11 @@
 package com.wkl.drawabledemo;
 
+import android.graphics.Outline;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Bundle;
+import android.view.View;
+import android.view.ViewOutlineProvider;
 import android.widget.ImageView;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -17,20 +22,46 @@ public class MainActivity extends AppCompatActivity {
 
         final ImageView iv = findViewById(R.id.dr);
 //        iv.setImageDrawable(drawable);
-        // AppCompatImageView 无感使用
-        iv.setImageResource(R.drawable.common_default_img);
+        // 编译期生成的 spec 直接创建, 不需要解析 xml
+        iv.setImageDrawable(PlaceholderDrawable.create(this, R.drawable.common_default_img));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // 使用占位图的 outline 裁剪圆角, 不需要软件裁剪或者额外的图层
+            iv.setOutlineProvider(new ViewOutlineProvider() {
+                @Override
+                public void getOutline(View view, Outline outline) {
+                    Drawable dr = ((ImageView) view).getDrawable();
+                    if (dr != null) {
+                        dr.getOutline(outline);
+                    }
+                }
+            });
+            iv.setClipToOutline(true);
+        }
 
         ImageView iv2 = findViewById(R.id.iv);
         GlideApp.with(this)
                 .load("")
                 // 直接 无感使用占位图
                 .placeholder(R.drawable.common_default_img2)
+                .lowMemoryBitmap()
                 .into(iv2);
 
         ImageView iv3 = findViewById(R.id.dr1);
+        final String url = "";
+        // 使用 DemoApplication 中预加载好的 state
+        Drawable placeholder = PlaceholderDrawable.create(this, R.drawable.common_default_img2);
+        if (placeholder instanceof PlaceholderDrawable) {
+            // 之前加载过的图片直接使用它的主色
+            final int color = DominantColorIndex.get(this).getColor(url, 0);
+            if (color != 0) {
+                ((PlaceholderDrawable) placeholder).setColor(color);
+            }
+        }
         GlideApp.with(this)
-                .load("")
-                .placeholder(R.drawable.common_default_img2)
+                .load(url)
+                .placeholder(placeholder)
+                // 需要记录主色的图片使用软件位图, 取色时不用再从 GPU 拷贝
+                .softwareBitmap()
                 .into(iv3);
 
     }
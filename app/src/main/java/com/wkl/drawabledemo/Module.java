@@ -1,6 +1,8 @@
 package com.wkl.drawabledemo;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
+
 import androidx.annotation.NonNull;
 
 import com.bumptech.glide.Glide;
@@ -8,9 +10,7 @@ import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.Registry;
 import com.bumptech.glide.annotation.GlideModule;
 import com.bumptech.glide.load.DecodeFormat;
-import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
-import com.bumptech.glide.load.engine.cache.LruResourceCache;
-import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 import com.bumptech.glide.module.AppGlideModule;
 import com.bumptech.glide.request.RequestOptions;
 
@@ -22,23 +22,37 @@ import com.bumptech.glide.request.RequestOptions;
 @GlideModule
 public class Module extends AppGlideModule {
 
+    private static final int CROSS_FADE_DURATION = 300;
+
+    private GlideMemoryPolicy mMemoryPolicy;
+
     public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
-        RequestOptions requestOptions = new RequestOptions();
-        requestOptions.format(DecodeFormat.PREFER_ARGB_8888);
-        requestOptions.disallowHardwareConfig();
+        // 不再全局禁用 HARDWARE, 按请求选择, 见 BitmapPolicyExtension
+        RequestOptions requestOptions = new RequestOptions()
+                .format(DecodeFormat.PREFER_ARGB_8888);
         builder.setDefaultRequestOptions(requestOptions);
+        // 所有 Drawable 请求默认淡入 CROSS_FADE_DURATION, 内存缓存命中时不做动画, 不需要的请求用 dontTransition()
+        // 从占位图淡入时, 图片完全覆盖后不再绘制占位图
+        builder.setDefaultTransitionOptions(Drawable.class,
+                DrawableTransitionOptions.with(new PlaceholderCrossFadeFactory(CROSS_FADE_DURATION)));
 
-        MemorySizeCalculator calculator = (new MemorySizeCalculator.Builder(context)).build();
-        int defaultMemoryCacheSize = calculator.getMemoryCacheSize();
-        int defaultBitmapPoolSize = calculator.getBitmapPoolSize();
-        int customMemoryCacheSize = (int) (1.2f * defaultMemoryCacheSize);
-        int customBitmapPoolSize = (int) (1.2f * defaultBitmapPoolSize);
-        builder.setMemoryCache(new LruResourceCache(customMemoryCacheSize));
-        builder.setBitmapPool(new LruBitmapPool(customBitmapPoolSize));
+        // 缓存大小按设备等级决定, 运行时跟随 onTrimMemory 调整
+        mMemoryPolicy = GlideMemoryPolicy.create(context);
+        builder.setMemoryCache(mMemoryPolicy.getMemoryCache());
+        builder.setBitmapPool(mMemoryPolicy.getBitmapPool());
+        // 占位图的光栅化缓存复用 Glide 的 BitmapPool
+        PlaceholderBitmapCache.install(mMemoryPolicy.getBitmapPool(), mMemoryPolicy.getPlaceholderCacheSize());
+        // 记录加载成功的图片主色, 下次加载前占位图直接使用; 全局 listener 只能在 GlideBuilder 上注册
+        builder.addGlobalRequestListener(new DominantColorListener(DominantColorIndex.get(context)));
+        // 软件 Canvas 或者读像素的 target 拿到 HARDWARE 位图时换成软件拷贝
+        builder.addGlobalRequestListener(new SoftwareBitmapFallbackListener(context));
     }
 
     @Override
     public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
         super.registerComponents(context, glide, registry);
+        if (mMemoryPolicy != null) {
+            mMemoryPolicy.attach(context, glide);
+        }
     }
 }
@@ -0,0 +1,180 @@
+package com.wkl.drawabledemo;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+
+import java.util.Arrays;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 进程级的占位图位图缓存, 相同 (样式, 宽, 高, density) 的占位图只光栅化一次, 按完全不透明光栅化, alpha 在绘制时应用
+ * 位图从 Glide 的 BitmapPool 中获取, 但被淘汰时不还给 BitmapPool:
+ * 屏幕上 View 录制好的显示列表可能还引用着这张位图, 被 Glide 复用或者回收后会显示错乱甚至崩溃, 淘汰后交给 GC
+ */
+public final class PlaceholderBitmapCache {
+
+    private static volatile PlaceholderBitmapCache sInstance;
+
+    private final BitmapPool mBitmapPool;
+    private final LruCache<Key, Bitmap> mCache;
+
+    private PlaceholderBitmapCache(@NonNull BitmapPool pool, int maxBytes) {
+        mBitmapPool = pool;
+        mCache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * 在 GlideModule 中初始化, 未初始化时 raster 模式退化为普通绘制
+     *
+     * @param pool     Glide 使用的 BitmapPool
+     * @param maxBytes 缓存的最大字节数
+     */
+    public static void install(@NonNull BitmapPool pool, int maxBytes) {
+        PlaceholderBitmapCache old = sInstance;
+        sInstance = new PlaceholderBitmapCache(pool, maxBytes);
+        if (old != null) {
+            old.clear();
+        }
+    }
+
+    @Nullable
+    static PlaceholderBitmapCache get() {
+        return sInstance;
+    }
+
+    public static void clearAll() {
+        PlaceholderBitmapCache cache = sInstance;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Nullable
+    Bitmap getBitmap(@NonNull Key key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * 从 BitmapPool 中取一张已擦除的位图, 绘制完成后通过 {@link #putBitmap} 放入缓存
+     */
+    @NonNull
+    Bitmap obtainBitmap(int width, int height) {
+        return mBitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    boolean canCache(int width, int height) {
+        // 超过预算的位图放入后会被立刻淘汰
+        return (long) width * height * 4 <= mCache.maxSize();
+    }
+
+    void putBitmap(@NonNull Key key, @NonNull Bitmap bitmap) {
+        mCache.put(key, bitmap);
+    }
+
+    void clear() {
+        mCache.evictAll();
+    }
+
+    static void trimMemory(int level) {
+        PlaceholderBitmapCache cache = sInstance;
+        if (cache != null) {
+            GlideMemoryPolicy.trimCache(cache.mCache, level);
+        }
+    }
+
+    int hitCount() {
+        return mCache.hitCount();
+    }
+
+    int missCount() {
+        return mCache.missCount();
+    }
+
+    int evictionCount() {
+        return mCache.evictionCount();
+    }
+
+    /**
+     * 占位图的光栅化结果只与这些值有关
+     */
+    static final class Key {
+        private final int mLogoResId;
+        private final int mLogoDensity;
+        private final int mColor;
+        private final float mRadius;
+        private final float[] mRadiusArray;
+        private final float mLogoFraction;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mDensity;
+        private final int mHashCode;
+
+        /**
+         * @param logoResId 没有 logo 时为 0
+         * @param color     完全不透明的背景色
+         */
+        Key(int logoResId, int logoDensity, int color, float radius, @Nullable float[] radii,
+            float logoFraction, int width, int height, int density) {
+            mLogoResId = logoResId;
+            mLogoDensity = logoDensity;
+            mColor = color;
+            mRadius = radius;
+            mRadiusArray = radii != null ? radii.clone() : null;
+            mLogoFraction = logoFraction;
+            mWidth = width;
+            mHeight = height;
+            mDensity = density;
+
+            int result = logoResId;
+            result = 31 * result + logoDensity;
+            result = 31 * result + color;
+            result = 31 * result + Float.floatToIntBits(radius);
+            result = 31 * result + Arrays.hashCode(mRadiusArray);
+            result = 31 * result + Float.floatToIntBits(logoFraction);
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + density;
+            mHashCode = result;
+        }
+
+        boolean matches(int logoResId, int logoDensity, int color, float radius, @Nullable float[] radii,
+                        float logoFraction, int width, int height, int density) {
+            return mLogoResId == logoResId && mLogoDensity == logoDensity && mColor == color
+                    && Float.compare(mRadius, radius) == 0 && Arrays.equals(mRadiusArray, radii)
+                    && Float.compare(mLogoFraction, logoFraction) == 0
+                    && mWidth == width && mHeight == height && mDensity == density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mHashCode == key.mHashCode
+                    && key.matches(mLogoResId, mLogoDensity, mColor, mRadius, mRadiusArray, mLogoFraction,
+                    mWidth, mHeight, mDensity);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
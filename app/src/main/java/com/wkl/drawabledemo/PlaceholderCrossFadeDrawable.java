@@ -0,0 +1,248 @@
+package com.wkl.drawabledemo;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 图片在占位图上淡入, 占位图本身不做淡出
+ * 整体的固有尺寸和图片一致, ImageView 按 scaleType 对图片缩放; 占位图用逆矩阵换算回 View 的内容区域,
+ * 和替换前一样铺满 View, 不随图片的缩放变形
+ * 淡入结束后图片不透明且缩放后覆盖整个内容区域时不再绘制占位图, 并让占位图不可见 (停止 shimmer 等动画)
+ * ImageView 替换 drawable 时会清掉占位图的 callback 并让它不可见, 在 setVisible / draw 时重新接管
+ */
+final class PlaceholderCrossFadeDrawable extends Drawable implements Drawable.Callback {
+
+    private final Drawable mPlaceholder;
+    private final Drawable mImage;
+    @Nullable
+    private final ImageView mView;
+    private final int mDuration;
+    private final Matrix mInverse = new Matrix();
+    private final RectF mContentRect = new RectF();
+    private final RectF mImageRect = new RectF();
+    private final RectF mPlaceholderRect = new RectF();
+    private final Rect mPlaceholderBounds = new Rect();
+    private int mViewWidth = -1;
+    private int mViewHeight = -1;
+    private boolean mImageCovers;
+    private boolean mLayoutDirty = true;
+    private long mStartTime = -1;
+    private boolean mFinished;
+    private boolean mPlaceholderDropped;
+    private int mAlpha = 0xFF;
+
+    /**
+     * @param view 显示的 ImageView, 用于换算图片缩放后的区域, 为 null 时认为图片和占位图绘制在同一个 bounds 中
+     */
+    PlaceholderCrossFadeDrawable(@NonNull Drawable placeholder, @NonNull Drawable image, @Nullable ImageView view,
+                                 int duration) {
+        mPlaceholder = placeholder;
+        mImage = image;
+        mView = view;
+        mDuration = duration;
+        placeholder.setCallback(this);
+        image.setCallback(this);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        attachPlaceholder();
+        // ImageView 先 setBounds 再计算矩阵, 所以在 draw 时才换算;
+        // View 尺寸变化但图片 bounds 不变时, ImageView 只更新矩阵, 不会回调 onBoundsChange
+        if (mLayoutDirty || (mView != null
+                && (mView.getWidth() != mViewWidth || mView.getHeight() != mViewHeight))) {
+            updateLayout();
+        }
+        if (mFinished) {
+            if (!mPlaceholderDropped) {
+                mPlaceholder.draw(canvas);
+            }
+            mImage.draw(canvas);
+            return;
+        }
+
+        final long now = SystemClock.uptimeMillis();
+        if (mStartTime < 0) {
+            mStartTime = now;
+        }
+        final float fraction = mDuration > 0 ? Math.min(1f, (now - mStartTime) / (float) mDuration) : 1f;
+        if (fraction >= 1f) {
+            finish();
+            draw(canvas);
+            return;
+        }
+        mPlaceholder.draw(canvas);
+        mImage.setAlpha((int) (mAlpha * fraction));
+        mImage.draw(canvas);
+        invalidateSelf();
+    }
+
+    private void finish() {
+        mFinished = true;
+        mImage.setAlpha(mAlpha);
+        updatePlaceholderDropped();
+    }
+
+    /**
+     * ImageView 设置这个 drawable 时清掉了占位图的 callback 并让它不可见, 重新接管
+     */
+    private void attachPlaceholder() {
+        if (mPlaceholder.getCallback() != this) {
+            mPlaceholder.setCallback(this);
+        }
+        final boolean visible = isVisible() && !mPlaceholderDropped;
+        if (mPlaceholder.isVisible() != visible) {
+            mPlaceholder.setVisible(visible, false);
+        }
+    }
+
+    /**
+     * 图片不透明并且缩放后的区域覆盖整个内容区域时, 占位图完全不可见
+     */
+    private void updatePlaceholderDropped() {
+        final boolean dropped = mFinished && mImageCovers && mImage.getOpacity() == PixelFormat.OPAQUE;
+        if (mPlaceholderDropped != dropped) {
+            mPlaceholderDropped = dropped;
+            mPlaceholder.setVisible(!dropped && isVisible(), false);
+        }
+    }
+
+    /**
+     * 图片绘制在 bounds 中, ImageView 再按 scaleType 的矩阵缩放到内容区域;
+     * 图片的实际区域是 bounds 经过矩阵后的区域, 占位图的 bounds 是内容区域经过逆矩阵后的区域
+     */
+    private void updateLayout() {
+        mLayoutDirty = false;
+        final Rect bounds = getBounds();
+        final ImageView view = mView;
+        if (view == null || view.getWidth() <= 0 || view.getHeight() <= 0) {
+            mViewWidth = view != null ? view.getWidth() : -1;
+            mViewHeight = view != null ? view.getHeight() : -1;
+            mPlaceholder.setBounds(bounds);
+            mImageCovers = true;
+            updatePlaceholderDropped();
+            return;
+        }
+        mViewWidth = view.getWidth();
+        mViewHeight = view.getHeight();
+        mContentRect.set(0, 0, mViewWidth - view.getPaddingLeft() - view.getPaddingRight(),
+                mViewHeight - view.getPaddingTop() - view.getPaddingBottom());
+        final Matrix matrix = view.getImageMatrix();
+        mImageRect.set(bounds);
+        matrix.mapRect(mImageRect);
+        mImageCovers = mImageRect.left <= mContentRect.left + 0.5f && mImageRect.top <= mContentRect.top + 0.5f
+                && mImageRect.right >= mContentRect.right - 0.5f && mImageRect.bottom >= mContentRect.bottom - 0.5f;
+        if (matrix.invert(mInverse)) {
+            mPlaceholderRect.set(mContentRect);
+            mInverse.mapRect(mPlaceholderRect);
+            mPlaceholderRect.roundOut(mPlaceholderBounds);
+            mPlaceholder.setBounds(mPlaceholderBounds);
+        } else {
+            mPlaceholder.setBounds(bounds);
+        }
+        updatePlaceholderDropped();
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mImage.setBounds(bounds);
+        mPlaceholder.setBounds(bounds);
+        mLayoutDirty = true;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mImage.getIntrinsicWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mImage.getIntrinsicHeight();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            mPlaceholder.setAlpha(alpha);
+            if (mFinished) {
+                mImage.setAlpha(alpha);
+                updatePlaceholderDropped();
+            }
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPlaceholder.setColorFilter(colorFilter);
+        mImage.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+        if (mPlaceholderDropped) {
+            return PixelFormat.OPAQUE;
+        }
+        return resolveOpacity(mPlaceholder.getOpacity(), mImage.getOpacity());
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (mPlaceholder.getCallback() != this) {
+            mPlaceholder.setCallback(this);
+        }
+        mPlaceholder.setVisible(visible && !mPlaceholderDropped, restart);
+        mImage.setVisible(visible, restart);
+        return changed;
+    }
+
+    @Override
+    public boolean isStateful() {
+        return mPlaceholder.isStateful() || mImage.isStateful();
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        final boolean placeholderChanged = mPlaceholder.setState(state);
+        return mImage.setState(state) || placeholderChanged;
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        if (who == mPlaceholder && mPlaceholderDropped) {
+            return;
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
+    }
+}
@@ -0,0 +1,67 @@
+package com.wkl.drawabledemo;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.request.transition.DrawableCrossFadeFactory;
+import com.bumptech.glide.request.transition.NoTransition;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.request.transition.TransitionFactory;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 当前显示的是 PlaceholderDrawable 时使用 {@link PlaceholderCrossFadeDrawable} 淡入, 图片完全覆盖后不再绘制占位图
+ * 其他情况交给 Glide 的 DrawableCrossFadeFactory, 内存缓存命中时不做动画
+ */
+public final class PlaceholderCrossFadeFactory implements TransitionFactory<Drawable> {
+
+    private final int mDuration;
+    private final DrawableCrossFadeFactory mDefaultFactory;
+    private PlaceholderCrossFadeTransition mTransition;
+
+    public PlaceholderCrossFadeFactory(int duration) {
+        mDuration = duration;
+        mDefaultFactory = new DrawableCrossFadeFactory.Builder(duration).build();
+    }
+
+    @Override
+    public Transition<Drawable> build(DataSource dataSource, boolean isFirstResource) {
+        if (dataSource == DataSource.MEMORY_CACHE) {
+            return NoTransition.get();
+        }
+        if (mTransition == null) {
+            mTransition = new PlaceholderCrossFadeTransition(mDuration,
+                    mDefaultFactory.build(dataSource, isFirstResource));
+        }
+        return mTransition;
+    }
+
+    private static final class PlaceholderCrossFadeTransition implements Transition<Drawable> {
+        private final int mDuration;
+        private final Transition<Drawable> mDefaultTransition;
+
+        PlaceholderCrossFadeTransition(int duration, @NonNull Transition<Drawable> defaultTransition) {
+            mDuration = duration;
+            mDefaultTransition = defaultTransition;
+        }
+
+        @Override
+        public boolean transition(Drawable current, ViewAdapter adapter) {
+            final Drawable previous = adapter.getCurrentDrawable();
+            if (!(previous instanceof PlaceholderDrawable)) {
+                return mDefaultTransition.transition(current, adapter);
+            }
+            final View view = adapter.getView();
+            adapter.setDrawable(new PlaceholderCrossFadeDrawable(previous, current,
+                    view instanceof ImageView ? (ImageView) view : null, mDuration));
+            return true;
+        }
+    }
+}
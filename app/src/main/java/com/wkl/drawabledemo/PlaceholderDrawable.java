@@ -1,24 +1,49 @@
 package com.wkl.drawabledemo;
 
+import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PixelFormat;
+import android.graphics.RadialGradient;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.TypedValue;
 
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.core.content.res.ResourcesCompat;
 
 import org.xmlpull.v1.XmlPullParser;
 
+import java.util.Arrays;
+import java.util.HashMap;
+
 /**
  * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
  * <p>
@@ -29,11 +54,96 @@ import org.xmlpull.v1.XmlPullParser;
  */
 public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
 
+    private static final int DEFAULT_SHIMMER_COLOR = 0x80FFFFFF;
+    private static final int DEFAULT_SHIMMER_DURATION = 1200;
+
+    public static final int GRADIENT_NONE = 0;
+    public static final int GRADIENT_LINEAR = 1;
+    public static final int GRADIENT_RADIAL = 2;
+
     private PlaceholderState mPlaceholderState;
     private boolean mMutated;
+    /**
+     * 为 false 时 mPlaceholderState 可能被其他 PlaceholderDrawable 共享, 修改前需要先复制
+     */
+    private boolean mOwnsState;
 
+    /**
+     * logo 的绘制实例, 每个 PlaceholderDrawable 各自持有, 由 state 中的 ChildDrawable 创建
+     */
+    private Drawable mChildDrawable;
+    private boolean mChildMutated;
+
+    private boolean mCheckedOpacity;
+    private int mOpacity;
+
+    /*
+     * 绘制用的几何缓存, 只在 bounds / 圆角 / density / logo 尺寸变化时重建, draw 时直接使用
+     */
     private final Path mPath = new Path();
     private final RectF mRect = new RectF();
+    private final Rect mChildRect = new Rect();
+    private float mDrawRadius;
+    private int mChildWidth = -1;
+    private int mChildHeight = -1;
+    private boolean mGeometryDirty = true;
+
+    /**
+     * logo 需要缩小时使用的目标尺寸位图, 已经是最终大小, 绘制时不再缩放
+     * 在子线程解码, 完成之前先按 bounds 缩放绘制原来的 logo
+     */
+    private Bitmap mScaledLogo;
+    private LogoBitmapCache.Key mLogoRequested;
+    private LogoBitmapCache.Callback mLogoCallback;
+    /*
+     * 下面的 Paint, Matrix, Path 只在用到对应功能时才创建, 大部分占位图只有纯色背景和 logo
+     */
+    private Paint mLogoPaint;
+
+    private PlaceholderBitmapCache.Key mRasterKey;
+    private Paint mRasterPaint;
+    /**
+     * API 29+ 硬件加速时缓存背景和 logo 的绘制指令
+     */
+    private ContentRenderNode mRenderNode;
+
+    /*
+     * shimmer 高光, shader 只在宽度或颜色变化时重建, 每帧不修改 shader, 裁剪到背景形状后通过 canvas.translate 移动高光带
+     * (O 以后 setLocalMatrix 会让 HWUI 重建 native shader, 每帧都会分配)
+     * HWUI 在 O 以前记录的是 shader 的引用, 多个占位图共用一个 shader 会互相影响, 所以 shader 每个实例一份
+     */
+    private Paint mShimmerPaint;
+    private Path mShimmerClip;
+    private Shader mShimmerShader;
+    private float mShimmerWidth;
+    private int mShimmerColor;
+    private boolean mShimmerRegistered;
+
+    /*
+     * 渐变背景, shader 按单位尺寸创建, 只在类型或颜色变化时重建, bounds 变化时只更新 local matrix
+     * 和 shimmer 一样每个实例一份, 不放在共享 state 的 paint 上
+     */
+    private Paint mGradientPaint;
+    private Matrix mGradientMatrix;
+    private Shader mGradientShader;
+    private int mGradientType;
+    private int mGradientStartColor;
+    private int mGradientEndColor;
+
+    /*
+     * BlurHash 预览, 解码好之前只绘制背景, 之后用 BitmapShader 把小图放大到 bounds, 圆角和背景一致
+     */
+    private Paint mPreviewPaint;
+    private Matrix mPreviewMatrix;
+    private Bitmap mPreviewBitmap;
+    private String mPreviewBitmapHash;
+    private String mPreviewRequested;
+    private BlurHashCache.Callback mPreviewCallback;
+
+    /**
+     * 动画 logo 上一次刷新的帧时间, 用于限制帧率
+     */
+    private long mLastLogoFrameNanos;
 
     /**
      * 必须 public 否则 api >= 24 的系统 反射会失败
@@ -42,8 +152,70 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
         this(null, null);
     }
 
-    private PlaceholderDrawable(PlaceholderState state, Resources res) {
-        mPlaceholderState = createConstantState(state, res);
+    private PlaceholderDrawable(@Nullable PlaceholderState state, @Nullable Resources res) {
+        if (state != null) {
+            // 直接共享对应 density 的 state, 直到 mutate 或者调用 setter 时才复制
+            mPlaceholderState = state.forDensity(resolveDensity2(res, state.mDensity));
+            mOwnsState = false;
+        } else {
+            mPlaceholderState = new PlaceholderState(null, resolveDensity2(res, 0));
+            mOwnsState = true;
+        }
+        initChild(res);
+    }
+
+    /**
+     * 从 state 中的模板创建 logo 实例
+     */
+    private void initChild(@Nullable Resources res) {
+        final ChildDrawable child = mPlaceholderState.mChild;
+        if (child != null) {
+            mChildDrawable = child.newDrawable(this, res);
+            final PlaceholderState state = mPlaceholderState;
+            // logo 只跟随 setAlpha, 不受背景色自身 alpha 的影响
+            if (state.mAlpha != 0xFF) {
+                mutateChild().setAlpha(state.mAlpha);
+            }
+            final ColorFilter filter = state.mPaint.getColorFilter();
+            if (filter != null) {
+                mutateChild().setColorFilter(filter);
+            }
+        }
+    }
+
+    /**
+     * 共享的 state 在修改前先复制一份
+     */
+    private PlaceholderState ensureOwnState() {
+        if (!mOwnsState) {
+            mPlaceholderState = new PlaceholderState(mPlaceholderState, mPlaceholderState.mDensity);
+            mOwnsState = true;
+            mGeometryDirty = true;
+        }
+        return mPlaceholderState;
+    }
+
+    /**
+     * 换成样式相同的已登记 state, 之后的修改都会先复制
+     */
+    private void internState(int density) {
+        final PlaceholderState interned = PlaceholderStateRegistry.intern(mPlaceholderState).forDensity(density);
+        if (interned != mPlaceholderState) {
+            mPlaceholderState = interned;
+            mGeometryDirty = true;
+        }
+        mOwnsState = false;
+    }
+
+    /**
+     * logo 实例和其他 logo 共享 ConstantState, 修改 alpha 等属性前需要先 mutate
+     */
+    private Drawable mutateChild() {
+        if (!mChildMutated) {
+            mChildDrawable.mutate();
+            mChildMutated = true;
+        }
+        return mChildDrawable;
     }
 
     @Override
@@ -52,53 +224,585 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
         if (bounds.isEmpty()) {
             return;
         }
+        final boolean metrics = PlaceholderMetrics.sEnabled;
+        final long token = metrics ? PlaceholderMetrics.begin(PlaceholderMetrics.SECTION_DRAW) : 0;
+        if (mGeometryDirty) {
+            updateGeometry(bounds);
+        }
+        if (!mPlaceholderState.mRasterMode || !drawFromCache(canvas, bounds)) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || !drawFromRenderNode(canvas, bounds)) {
+                drawContent(canvas);
+            }
+        }
+        if (mPlaceholderState.mShimmer) {
+            drawShimmer(canvas, bounds);
+        }
+        if (metrics) {
+            PlaceholderMetrics.end(PlaceholderMetrics.SECTION_DRAW, token);
+        }
+    }
+
+    private void drawContent(@NonNull Canvas canvas) {
         PlaceholderState state = mPlaceholderState;
         Paint paint = state.mPaint;
-        mRect.set(bounds);
+
+        // 预览图已经覆盖整个背景区域, logo 也不再需要
+        if (mPreviewBitmap != null) {
+            mPreviewPaint.setAlpha(state.mAlpha);
+            mPreviewPaint.setColorFilter(paint.getColorFilter());
+            drawShape(canvas, mPreviewPaint);
+            return;
+        }
 
         // 绘制圆角背景，如果需要的话
-        if (state.mRadiusArray != null) {
-            mPath.reset();
-            mPath.addRoundRect(mRect, state.mRadiusArray, Path.Direction.CW);
-            canvas.drawPath(mPath, paint);
-        } else if (state.mRadius > 0.0f) {
-            float rad = Math.min(state.mRadius,
-                    Math.min(mRect.width(), mRect.height()) * 0.5f);
-            canvas.drawRoundRect(mRect, rad, rad, paint);
-        } else {
-            if (paint.getColor() != 0 || paint.getShader() != null) {
-                canvas.drawRect(mRect, paint);
-            }
+        if (mGradientShader != null) {
+            mGradientPaint.setAlpha(state.mAlpha);
+            mGradientPaint.setColorFilter(paint.getColorFilter());
+            drawShape(canvas, mGradientPaint);
+        } else if (state.mRadiusArray != null || mDrawRadius > 0.0f
+                || paint.getColor() != 0 || paint.getShader() != null) {
+            drawShape(canvas, paint);
         }
 
         /*
          * 绘制中间的 logo, 如果有的话
          */
-        if (state.mChild != null) {
-            Drawable dr = state.mChild.mDrawable;
-            if (dr == null) {
-                return;
+        Drawable dr = getChild();
+        if (mScaledLogo != null) {
+            if (mLogoPaint == null) {
+                mLogoPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            }
+            mLogoPaint.setAlpha(dr.getAlpha());
+            mLogoPaint.setColorFilter(paint.getColorFilter());
+            canvas.drawBitmap(mScaledLogo, null, mChildRect, mLogoPaint);
+        } else if (dr != null) {
+            dr.draw(canvas);
+        }
+
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private boolean drawFromRenderNode(@NonNull Canvas canvas, @NonNull Rect bounds) {
+        if (!canvas.isHardwareAccelerated()) {
+            return false;
+        }
+        if (mRenderNode == null) {
+            mRenderNode = new ContentRenderNode();
+        }
+        mRenderNode.draw(this, canvas, bounds);
+        return true;
+    }
+
+    /**
+     * 背景或 logo 的内容变化时丢弃录制好的 RenderNode
+     */
+    private void invalidateContent() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mRenderNode != null) {
+            mRenderNode.invalidate();
+        }
+    }
+
+    private void drawShape(@NonNull Canvas canvas, @NonNull Paint paint) {
+        if (mPlaceholderState.mRadiusArray != null) {
+            canvas.drawPath(mPath, paint);
+        } else if (mDrawRadius > 0.0f) {
+            canvas.drawRoundRect(mRect, mDrawRadius, mDrawRadius, paint);
+        } else {
+            canvas.drawRect(mRect, paint);
+        }
+    }
+
+    /**
+     * 高光带宽度等于 bounds 的宽度, 一个周期内从左侧外面扫到右侧外面
+     */
+    private void drawShimmer(@NonNull Canvas canvas, @NonNull Rect bounds) {
+        final ShimmerClock clock = ShimmerClock.get();
+        if (!mShimmerRegistered) {
+            clock.register(this);
+            mShimmerRegistered = true;
+        }
+        if (mShimmerShader == null) {
+            return;
+        }
+        final PlaceholderState state = mPlaceholderState;
+        final long duration = state.mShimmerDuration * 1000000L;
+        final float fraction = (clock.getFrameTimeNanos() % duration) / (float) duration;
+        // 只跟随 setAlpha, 不受背景色本身 alpha 的影响
+        mShimmerPaint.setAlpha(state.mAlpha);
+        final int saveCount = canvas.save();
+        if (state.mRadiusArray != null) {
+            canvas.clipPath(mPath);
+        } else if (mDrawRadius > 0.0f) {
+            canvas.clipPath(mShimmerClip);
+        } else {
+            canvas.clipRect(mRect);
+        }
+        canvas.translate(bounds.left - mShimmerWidth + fraction * 2 * mShimmerWidth, 0);
+        canvas.drawRect(0, mRect.top, mShimmerWidth, mRect.bottom, mShimmerPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * ShimmerClock 每帧回调, 不可见或者已经脱离 View 时停止
+     */
+    void onShimmerFrame() {
+        if (!mPlaceholderState.mShimmer || !isVisible() || getCallback() == null) {
+            stopShimmer();
+            return;
+        }
+        invalidateSelf();
+    }
+
+    private void stopShimmer() {
+        if (mShimmerRegistered) {
+            ShimmerClock.get().unregister(this);
+            mShimmerRegistered = false;
+        }
+    }
+
+    private void updateShimmerShader() {
+        final PlaceholderState state = mPlaceholderState;
+        if (!state.mShimmer) {
+            mShimmerShader = null;
+            if (mShimmerPaint != null) {
+                mShimmerPaint.setShader(null);
+            }
+            return;
+        }
+        if (state.mRadiusArray == null && mDrawRadius > 0.0f) {
+            if (mShimmerClip == null) {
+                mShimmerClip = new Path();
+            } else {
+                mShimmerClip.reset();
+            }
+            mShimmerClip.addRoundRect(mRect, mDrawRadius, mDrawRadius, Path.Direction.CW);
+        } else if (mShimmerClip != null) {
+            mShimmerClip.reset();
+        }
+        final float width = mRect.width();
+        if (mShimmerShader != null && mShimmerWidth == width && mShimmerColor == state.mShimmerColor) {
+            return;
+        }
+        mShimmerWidth = width;
+        mShimmerColor = state.mShimmerColor;
+        final int transparent = state.mShimmerColor & 0x00FFFFFF;
+        mShimmerShader = new LinearGradient(0, 0, width, 0,
+                new int[]{transparent, state.mShimmerColor, transparent}, null, Shader.TileMode.CLAMP);
+        if (mShimmerPaint == null) {
+            mShimmerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        }
+        mShimmerPaint.setShader(mShimmerShader);
+    }
+
+    /**
+     * 开启骨架屏高光动画, 所有占位图由同一个 Choreographer 回调驱动
+     */
+    public void setShimmer(boolean shimmer) {
+        if (mPlaceholderState.mShimmer != shimmer) {
+            ensureOwnState().mShimmer = shimmer;
+            if (!shimmer) {
+                stopShimmer();
+            }
+            mGeometryDirty = true;
+            invalidateSelf();
+        }
+    }
+
+    public void setShimmerColor(int color) {
+        if (mPlaceholderState.mShimmerColor != color) {
+            ensureOwnState().mShimmerColor = color;
+            mGeometryDirty = true;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * @param duration 一次扫过的时长, 毫秒
+     */
+    public void setShimmerDuration(int duration) {
+        if (duration > 0 && mPlaceholderState.mShimmerDuration != duration) {
+            ensureOwnState().mShimmerDuration = duration;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * raster 模式下从进程级缓存中取光栅化好的位图绘制, 无法缓存时返回 false 走普通绘制
+     */
+    private boolean drawFromCache(@NonNull Canvas canvas, @NonNull Rect bounds) {
+        final PlaceholderBitmapCache cache = PlaceholderBitmapCache.get();
+        if (cache == null) {
+            return false;
+        }
+        final PlaceholderState state = mPlaceholderState;
+        final Paint paint = state.mPaint;
+        if (paint.getColorFilter() != null || paint.getShader() != null
+                || state.mGradientType != GRADIENT_NONE || state.mPreviewHash != null) {
+            return false;
+        }
+        final int alpha = paint.getAlpha();
+        int logoResId = 0;
+        int logoDensity = 0;
+        Drawable dr = getChild();
+        if (dr != null) {
+            // 只有资源中的 logo 才能判断是否相同; 有状态的 logo 无法判断两次绘制结果是否一致
+            // 背景和 logo 的 alpha 不一致时 (例如半透明的背景色) 无法整体应用 alpha
+            final ChildDrawable child = state.mChild;
+            if (child == null || child.mResId == 0 || dr.isStateful() || dr.getAlpha() != alpha) {
+                return false;
             }
+            logoResId = child.mResId;
+            logoDensity = child.mDensity;
+        }
+        final int width = bounds.width();
+        final int height = bounds.height();
+        if (!cache.canCache(width, height)) {
+            return false;
+        }
+
+        // 缓存的是完全不透明的结果, 不同的 alpha 共用一张位图
+        final int color = paint.getColor() | 0xFF000000;
+        PlaceholderBitmapCache.Key key = mRasterKey;
+        if (key == null || !key.matches(logoResId, logoDensity, color, state.mRadius,
+                state.mRadiusArray, state.mLogoMaxFraction, width, height, state.mDensity)) {
+            key = new PlaceholderBitmapCache.Key(logoResId, logoDensity, color, state.mRadius,
+                    state.mRadiusArray, state.mLogoMaxFraction, width, height, state.mDensity);
+            mRasterKey = key;
+        }
+
+        Bitmap bitmap = cache.getBitmap(key);
+        if (bitmap == null) {
+            if (alpha != 0xFF) {
+                // 只在完全不透明时光栅化, 渐隐过程中未命中时直接绘制
+                return false;
+            }
+            bitmap = cache.obtainBitmap(width, height);
+            Canvas c = new Canvas(bitmap);
+            c.translate(-bounds.left, -bounds.top);
+            drawContent(c);
+            cache.putBitmap(key, bitmap);
+        }
+        if (mRasterPaint == null) {
+            mRasterPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        }
+        mRasterPaint.setAlpha(alpha);
+        canvas.drawBitmap(bitmap, bounds.left, bounds.top, mRasterPaint);
+        return true;
+    }
+
+    /**
+     * 开启后相同样式和尺寸的占位图共享一张光栅化好的位图, 需要先调用 {@link PlaceholderBitmapCache#install}
+     */
+    public void setRasterMode(boolean rasterMode) {
+        if (mPlaceholderState.mRasterMode != rasterMode) {
+            ensureOwnState().mRasterMode = rasterMode;
+            invalidateSelf();
+        }
+    }
+
+    @Nullable
+    private Drawable getChild() {
+        return mChildDrawable;
+    }
+
+    /**
+     * 重建背景路径, 实际圆角以及 logo 的位置
+     */
+    private void updateGeometry(Rect bounds) {
+        final PlaceholderState state = mPlaceholderState;
+        mRect.set(bounds);
+
+        mPath.reset();
+        if (state.mRadiusArray != null) {
+            mPath.addRoundRect(mRect, state.mRadiusArray, Path.Direction.CW);
+        }
+        mDrawRadius = Math.min(state.mRadius,
+                Math.min(mRect.width(), mRect.height()) * 0.5f);
+
+        mScaledLogo = null;
+        Drawable dr = getChild();
+        if (dr != null) {
             int w = dr.getIntrinsicWidth();
             int h = dr.getIntrinsicHeight();
+            mChildWidth = w;
+            mChildHeight = h;
+            float scale = 1f;
+            if (w > 0 && h > 0) {
+                // 等比缩小到 bounds 的 mLogoMaxFraction 以内, 不放大
+                scale = Math.min(1f, Math.min(bounds.width() * state.mLogoMaxFraction / w,
+                        bounds.height() * state.mLogoMaxFraction / h));
+            }
+            if (scale < 1f) {
+                w = Math.max(1, Math.round(w * scale));
+                h = Math.max(1, Math.round(h * scale));
+                mScaledLogo = obtainScaledLogo(dr, w, h);
+            }
             int left = bounds.centerX() - w / 2;
             int top = bounds.centerY() - h / 2;
-            dr.setBounds(left, top, left + w, top + h);
-            dr.draw(canvas);
+            mChildRect.set(left, top, left + w, top + h);
+            if (!mChildRect.equals(dr.getBounds())) {
+                dr.setBounds(mChildRect);
+            }
+        }
+        updateGradientShader();
+        updatePreview();
+        updateShimmerShader();
+        invalidateContent();
+        mGeometryDirty = false;
+    }
+
+    private void updateGradientShader() {
+        final PlaceholderState state = mPlaceholderState;
+        if (state.mGradientType == GRADIENT_NONE) {
+            mGradientShader = null;
+            if (mGradientPaint != null) {
+                mGradientPaint.setShader(null);
+            }
+            return;
+        }
+        if (mGradientShader == null || mGradientType != state.mGradientType
+                || mGradientStartColor != state.mGradientStartColor
+                || mGradientEndColor != state.mGradientEndColor) {
+            mGradientType = state.mGradientType;
+            mGradientStartColor = state.mGradientStartColor;
+            mGradientEndColor = state.mGradientEndColor;
+            if (mGradientType == GRADIENT_RADIAL) {
+                mGradientShader = new RadialGradient(0, 0, 1,
+                        mGradientStartColor, mGradientEndColor, Shader.TileMode.CLAMP);
+            } else {
+                mGradientShader = new LinearGradient(0, 0, 1, 0,
+                        mGradientStartColor, mGradientEndColor, Shader.TileMode.CLAMP);
+            }
+            if (mGradientPaint == null) {
+                mGradientPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+                mGradientMatrix = new Matrix();
+            }
+            mGradientPaint.setShader(mGradientShader);
+        }
+
+        final RectF rect = mRect;
+        if (mGradientType == GRADIENT_RADIAL) {
+            // 半径取宽高较大值的一半, 以中心为圆心
+            final float radius = Math.max(rect.width(), rect.height()) * 0.5f;
+            mGradientMatrix.setScale(radius, radius);
+            mGradientMatrix.postTranslate(rect.centerX(), rect.centerY());
+        } else {
+            // 单位线段 (0,0)-(1,0) 映射到穿过中心, 方向为 angle 且刚好覆盖 bounds 的线段上
+            final double angle = Math.toRadians(state.mGradientAngle);
+            final float cos = (float) Math.cos(angle);
+            final float sin = (float) -Math.sin(angle);
+            final float half = Math.abs(rect.width() * 0.5f * cos) + Math.abs(rect.height() * 0.5f * sin);
+            mGradientMatrix.setScale(half * 2, half * 2);
+            mGradientMatrix.postRotate((float) Math.toDegrees(Math.atan2(sin, cos)));
+            mGradientMatrix.postTranslate(rect.centerX() - cos * half, rect.centerY() - sin * half);
+        }
+        mGradientShader.setLocalMatrix(mGradientMatrix);
+    }
+
+    private void updatePreview() {
+        final String hash = mPlaceholderState.mPreviewHash;
+        if (hash == null) {
+            setPreviewBitmap(null, null);
+            return;
+        }
+        if (mPreviewBitmap == null || !hash.equals(mPreviewBitmapHash)) {
+            final Bitmap bitmap = BlurHashCache.get(hash);
+            setPreviewBitmap(bitmap, hash);
+            if (bitmap == null) {
+                requestPreview(hash);
+                return;
+            }
+        }
+        final Shader shader = mPreviewPaint.getShader();
+        if (mPreviewMatrix == null) {
+            mPreviewMatrix = new Matrix();
+        }
+        mPreviewMatrix.setScale(mRect.width() / mPreviewBitmap.getWidth(),
+                mRect.height() / mPreviewBitmap.getHeight());
+        mPreviewMatrix.postTranslate(mRect.left, mRect.top);
+        shader.setLocalMatrix(mPreviewMatrix);
+    }
+
+    /**
+     * 预览图代替背景绘制, 变化时重新计算不透明度
+     */
+    private void setPreviewBitmap(@Nullable Bitmap bitmap, @Nullable String hash) {
+        if (mPreviewBitmap == bitmap) {
+            return;
+        }
+        mPreviewBitmap = bitmap;
+        mPreviewBitmapHash = bitmap != null ? hash : null;
+        if (bitmap != null) {
+            if (mPreviewPaint == null) {
+                mPreviewPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+            }
+            mPreviewPaint.setShader(new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        } else if (mPreviewPaint != null) {
+            mPreviewPaint.setShader(null);
+        }
+        mCheckedOpacity = false;
+    }
+
+    private void requestPreview(@NonNull String hash) {
+        if (hash.equals(mPreviewRequested)) {
+            return;
+        }
+        if (mPreviewCallback == null) {
+            mPreviewCallback = new BlurHashCache.Callback() {
+                @Override
+                public void onPreviewDecoded(@NonNull String hash, @NonNull Bitmap bitmap) {
+                    mPreviewRequested = null;
+                    if (hash.equals(mPlaceholderState.mPreviewHash)) {
+                        mGeometryDirty = true;
+                        invalidateContent();
+                        invalidateSelf();
+                    }
+                }
+            };
+        } else if (mPreviewRequested != null) {
+            BlurHashCache.cancel(mPreviewRequested, mPreviewCallback);
+        }
+        mPreviewRequested = hash;
+        BlurHashCache.load(hash, mPreviewCallback);
+    }
+
+    /**
+     * 设置 BlurHash, 在子线程解码成小图, 完成后代替背景和 logo 绘制, 只在主线程调用
+     *
+     * @param hash 为 null 时恢复为普通背景
+     */
+    public void setPreviewHash(@Nullable String hash) {
+        final String old = mPlaceholderState.mPreviewHash;
+        if (hash == null ? old != null : !hash.equals(old)) {
+            ensureOwnState().mPreviewHash = hash;
+            mGeometryDirty = true;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置渐变背景, 代替纯色背景
+     *
+     * @param type  {@link #GRADIENT_NONE}, {@link #GRADIENT_LINEAR} 或 {@link #GRADIENT_RADIAL}
+     * @param angle 线性渐变的方向, 单位度, 0 为从左到右, 90 为从下到上
+     */
+    public void setGradient(int type, int startColor, int endColor, float angle) {
+        final PlaceholderState state = mPlaceholderState;
+        if (state.mGradientType != type || state.mGradientStartColor != startColor
+                || state.mGradientEndColor != endColor || state.mGradientAngle != angle) {
+            final PlaceholderState own = ensureOwnState();
+            own.mGradientType = type;
+            own.mGradientStartColor = startColor;
+            own.mGradientEndColor = endColor;
+            own.mGradientAngle = angle;
+            mGeometryDirty = true;
+            mCheckedOpacity = false;
+            invalidateSelf();
         }
+    }
 
+    /**
+     * 缓存中还没有时提交到子线程解码, 这一次返回 null, 解码完成后重新计算几何
+     */
+    @Nullable
+    private Bitmap obtainScaledLogo(@NonNull Drawable dr, int width, int height) {
+        final ChildDrawable child = mPlaceholderState.mChild;
+        final LogoBitmapCache.Key key;
+        if (child.isResourceBitmap()) {
+            key = LogoBitmapCache.Key.forResource(child.mResources, child.mResId, child.mConfig, width, height);
+        } else if (dr instanceof BitmapDrawable && ((BitmapDrawable) dr).getBitmap() != null) {
+            key = LogoBitmapCache.Key.forBitmap(((BitmapDrawable) dr).getBitmap(), width, height);
+        } else {
+            // 其他类型 (例如 vector) 直接按 bounds 绘制
+            return null;
+        }
+        final Bitmap bitmap = LogoBitmapCache.get(key);
+        if (bitmap == null) {
+            requestScaledLogo(key);
+        }
+        return bitmap;
+    }
+
+    private void requestScaledLogo(@NonNull LogoBitmapCache.Key key) {
+        if (key.equals(mLogoRequested)) {
+            return;
+        }
+        if (mLogoCallback == null) {
+            mLogoCallback = new LogoBitmapCache.Callback() {
+                @Override
+                public void onLogoDecoded(@NonNull LogoBitmapCache.Key key, @NonNull Bitmap bitmap) {
+                    if (key.equals(mLogoRequested)) {
+                        mLogoRequested = null;
+                        mGeometryDirty = true;
+                        invalidateContent();
+                        invalidateSelf();
+                    }
+                }
+            };
+        } else if (mLogoRequested != null) {
+            LogoBitmapCache.cancel(mLogoRequested, mLogoCallback);
+        }
+        mLogoRequested = key;
+        LogoBitmapCache.load(key, mLogoCallback);
+    }
+
+    /**
+     * logo 最多占 bounds 宽高的比例, 超出时等比缩小
+     */
+    public void setLogoMaxFraction(float fraction) {
+        if (fraction > 0 && mPlaceholderState.mLogoMaxFraction != fraction) {
+            ensureOwnState().mLogoMaxFraction = fraction;
+            mGeometryDirty = true;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 动画 logo 的最高帧率, 0 表示不限制
+     */
+    public void setLogoMaxFps(int fps) {
+        if (fps >= 0 && mPlaceholderState.mLogoMaxFps != fps) {
+            ensureOwnState().mLogoMaxFps = fps;
+        }
+    }
+
+    /**
+     * logo 尺寸变化 (例如 StateListDrawable 切换) 时需要重新计算位置
+     */
+    private boolean checkChildSizeChanged() {
+        Drawable dr = getChild();
+        if (dr != null && (dr.getIntrinsicWidth() != mChildWidth
+                || dr.getIntrinsicHeight() != mChildHeight)) {
+            mGeometryDirty = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 修改背景色, 例如使用 {@link DominantColorIndex} 中记录的图片主色
+     */
+    public void setColor(int color) {
+        if (mPlaceholderState.mPaint.getColor() != color) {
+            ensureOwnState().mPaint.setColor(color);
+            mCheckedOpacity = false;
+            invalidateContent();
+            invalidateSelf();
+        }
     }
 
     @Override
     public void setAlpha(int alpha) {
         final int oldAlpha = mPlaceholderState.mPaint.getAlpha();
-        if (alpha != oldAlpha) {
-            mPlaceholderState.mPaint.setAlpha(alpha);
-            if (mPlaceholderState.mChild != null) {
-                if (mPlaceholderState.mChild.mDrawable != null) {
-                    mPlaceholderState.mChild.mDrawable.setAlpha(alpha);
-                }
+        if (alpha != oldAlpha || alpha != mPlaceholderState.mAlpha) {
+            final PlaceholderState state = ensureOwnState();
+            state.mPaint.setAlpha(alpha);
+            state.mAlpha = alpha;
+            mCheckedOpacity = false;
+            if (mChildDrawable != null) {
+                mutateChild().setAlpha(alpha);
             }
+            invalidateContent();
             invalidateSelf();
         }
     }
@@ -110,12 +814,12 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
 
     @Override
     public void setColorFilter(@Nullable ColorFilter colorFilter) {
-        mPlaceholderState.mPaint.setColorFilter(colorFilter);
-        if (mPlaceholderState.mChild != null) {
-            if (mPlaceholderState.mChild.mDrawable != null) {
-                mPlaceholderState.mChild.mDrawable.setColorFilter(colorFilter);
-            }
+        ensureOwnState().mPaint.setColorFilter(colorFilter);
+        mCheckedOpacity = false;
+        if (mChildDrawable != null) {
+            mutateChild().setColorFilter(colorFilter);
         }
+        invalidateContent();
         invalidateSelf();
     }
 
@@ -125,49 +829,239 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
         return mPlaceholderState.mPaint.getColorFilter();
     }
 
-    @Override
-    public int getOpacity() {
-        return mPlaceholderState.getOpacity();
+    /**
+     * 背景不透明且没有圆角时整个 bounds 被完全覆盖, 可以报告 OPAQUE, 让下面的内容跳过绘制
+     * logo 只覆盖中间区域, 不影响是否 OPAQUE, 只决定背景透明时是 TRANSLUCENT 还是 TRANSPARENT
+     */
+    @Override
+    public int getOpacity() {
+        if (mCheckedOpacity) {
+            return mOpacity;
+        }
+
+        final PlaceholderState state = mPlaceholderState;
+        final Paint paint = state.mPaint;
+        final int alpha = paint.getAlpha();
+        if (mPreviewBitmap != null) {
+            // 解码好的预览图代替背景和 logo, 不透明的 BlurHash 预览可以完全覆盖, 只受 setAlpha 影响
+            final int previewAlpha = state.mAlpha;
+            final int op = previewAlpha == 0xFF && !mPreviewBitmap.hasAlpha() && paint.getColorFilter() == null
+                    && !state.hasCorners() ? PixelFormat.OPAQUE
+                    : previewAlpha == 0 ? PixelFormat.TRANSPARENT : PixelFormat.TRANSLUCENT;
+            mOpacity = op;
+            mCheckedOpacity = true;
+            return op;
+        }
+        final boolean gradient = state.mGradientType != GRADIENT_NONE;
+        // 渐变背景只受 setAlpha 影响, 颜色自身的 alpha 由两端颜色决定
+        final int fillAlpha = gradient ? state.mAlpha : alpha;
+        final boolean hasBackground = fillAlpha != 0 || paint.getShader() != null;
+        // 渐变背景只有两端颜色都不透明时才能完全覆盖
+        final boolean opaqueFill = gradient
+                ? Color.alpha(state.mGradientStartColor) == 0xFF && Color.alpha(state.mGradientEndColor) == 0xFF
+                : paint.getShader() == null;
+
+        int op;
+        if (!hasBackground) {
+            op = mChildDrawable != null ? PixelFormat.TRANSLUCENT : PixelFormat.TRANSPARENT;
+        } else if (fillAlpha == 0xFF && opaqueFill && paint.getColorFilter() == null
+                && !state.hasCorners()) {
+            op = PixelFormat.OPAQUE;
+        } else {
+            op = PixelFormat.TRANSLUCENT;
+        }
+
+        mOpacity = op;
+        mCheckedOpacity = true;
+        return op;
+    }
+
+    /**
+     * 圆角背景提供对应的 outline, View 可以直接 setClipToOutline 以及投射正确的阴影
+     * 四个圆角不一致时使用路径 outline, API 30 以前只支持凸路径; Android 13 以前路径 outline 不支持裁剪, 只影响阴影
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void getOutline(@NonNull Outline outline) {
+        final Rect bounds = getBounds();
+        if (bounds.isEmpty()) {
+            super.getOutline(outline);
+            return;
+        }
+        if (mGeometryDirty) {
+            updateGeometry(bounds);
+        }
+        final PlaceholderState state = mPlaceholderState;
+        final float[] radii = state.mRadiusArray;
+        if (radii == null) {
+            outline.setRoundRect(bounds, mDrawRadius);
+        } else if (isUniform(radii)) {
+            outline.setRoundRect(bounds, Math.min(radii[0], Math.min(mRect.width(), mRect.height()) * 0.5f));
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // setConvexPath 从 API 30 起废弃, setPath 不要求路径是凸的
+            outline.setPath(mPath);
+        } else if (mPath.isConvex()) {
+            //noinspection deprecation
+            outline.setConvexPath(mPath);
+        } else {
+            super.getOutline(outline);
+            return;
+        }
+        outline.setAlpha(state.mPaint.getAlpha() / 255f);
+    }
+
+    private static boolean isUniform(@NonNull float[] radii) {
+        for (int i = 1; i < radii.length; i++) {
+            if (radii[i] != radii[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * logo 是 stateful 时 View 才会把状态传进来
+     */
+    @Override
+    public boolean isStateful() {
+        final Drawable dr = getChild();
+        return dr != null && dr.isStateful();
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        boolean changed = false;
+        Drawable dr = getChild();
+        if (dr != null && dr.isStateful() && dr.setState(state)) {
+            checkChildSizeChanged();
+            invalidateContent();
+            changed = true;
+        }
+        return changed;
+    }
+
+    @Override
+    protected boolean onLevelChange(int level) {
+        boolean changed = false;
+        Drawable dr = getChild();
+        if (dr != null && dr.setLevel(level)) {
+            checkChildSizeChanged();
+            invalidateContent();
+            changed = true;
+        }
+        return changed;
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        updateGeometry(bounds);
+        invalidateSelf();
+    }
+
+    public void setCornerRadius(float radius) {
+        ensureOwnState().setCornerRadius(radius);
+        mGeometryDirty = true;
+        mCheckedOpacity = false;
+        invalidateSelf();
+    }
+
+    public void setCornerRadii(@Nullable float[] radii) {
+        ensureOwnState().setCornerRadii(radii);
+        mGeometryDirty = true;
+        mCheckedOpacity = false;
+        invalidateSelf();
+    }
+
+    private void applyRadii(int radius, int topLeftRadius, int topRightRadius,
+                            int bottomRightRadius, int bottomLeftRadius) {
+        setCornerRadius(radius);
+        if (topLeftRadius != radius || topRightRadius != radius ||
+                bottomLeftRadius != radius || bottomRightRadius != radius) {
+            // The corner radii are specified in clockwise order (see Path.addRoundRect())
+            setCornerRadii(new float[]{
+                    topLeftRadius, topLeftRadius,
+                    topRightRadius, topRightRadius,
+                    bottomRightRadius, bottomRightRadius,
+                    bottomLeftRadius, bottomLeftRadius
+            });
+        }
+    }
+
+    private void setChild(@Nullable Drawable dr, @Nullable Resources res, @DrawableRes int resId, int density) {
+        if (dr != null) {
+            ensureOwnState().mChild = new ChildDrawable(dr, res, resId, density);
+            dr.setCallback(this);
+            mChildDrawable = dr;
+            mChildMutated = false;
+            mCheckedOpacity = false;
+            mGeometryDirty = true;
+        }
     }
 
-    @Override
-    protected boolean onStateChange(int[] state) {
-        boolean changed = false;
-        if (mPlaceholderState.mChild != null) {
-            Drawable dr = mPlaceholderState.mChild.mDrawable;
-            if (dr != null && dr.isStateful() && dr.setState(state)) {
-                changed = true;
+    /**
+     * 优先使用 {@link PlaceholderStateCache} 中缓存 (包括预加载) 的 state, 其次使用编译期生成的 PlaceholderSpecs 创建,
+     * 跳过 xml 解析; 都没有的资源走 AppCompatResources 原来的 inflate 流程, 结果同样放入缓存
+     */
+    @Nullable
+    public static Drawable create(@NonNull Context context, @DrawableRes int resId) {
+        final Resources res = context.getResources();
+        final PlaceholderState cached = PlaceholderStateCache.get(res, resId);
+        if (cached != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                return cached.newDrawable(res, context.getTheme());
             }
+            return cached.newDrawable(res);
         }
-        return changed;
-    }
-
-    @Override
-    protected boolean onLevelChange(int level) {
-        boolean changed = false;
-        if (mPlaceholderState.mChild != null) {
-            Drawable dr = mPlaceholderState.mChild.mDrawable;
-            if (dr != null && dr.setLevel(level)) {
-                changed = true;
+        final PlaceholderDrawable drawable = createFromSpec(res, resId, context.getTheme());
+        if (drawable != null) {
+            PlaceholderStateCache.put(res, resId, drawable.mPlaceholderState);
+            return drawable;
+        }
+        final Drawable inflated = AppCompatResources.getDrawable(context, resId);
+        if (inflated instanceof PlaceholderDrawable) {
+            final PlaceholderState state = ((PlaceholderDrawable) inflated).mPlaceholderState;
+            if (!state.mThemeDependent) {
+                PlaceholderStateCache.put(res, resId, state);
             }
         }
-        return changed;
+        return inflated;
     }
 
-    @Override
-    protected void onBoundsChange(Rect bounds) {
-        super.onBoundsChange(bounds);
-        invalidateSelf();
+    @Nullable
+    static PlaceholderDrawable createFromSpec(@NonNull Resources r, @DrawableRes int resId,
+                                              @Nullable Resources.Theme theme) {
+        final PlaceholderSpec spec = PlaceholderSpecs.get(resId);
+        if (spec == null) {
+            return null;
+        }
+        final PlaceholderDrawable drawable = new PlaceholderDrawable();
+        drawable.applySpec(r, spec, theme);
+        return drawable;
     }
 
-    private void setCornerRadius(float radius) {
-        mPlaceholderState.setCornerRadius(radius);
-        invalidateSelf();
-    }
+    private void applySpec(@NonNull Resources r, @NonNull PlaceholderSpec spec, @Nullable Resources.Theme theme) {
+        final PlaceholderState state = ensureOwnState();
+        final int density = resolveDensity2(r, 0);
+        state.setDensity(density);
+        mGeometryDirty = true;
 
-    private void setCornerRadii(@Nullable float[] radii) {
-        mPlaceholderState.setCornerRadii(radii);
-        invalidateSelf();
+        final DisplayMetrics metrics = r.getDisplayMetrics();
+        applyRadii(TypedValue.complexToDimensionPixelSize(spec.mRadius, metrics),
+                TypedValue.complexToDimensionPixelSize(spec.mTopLeftRadius, metrics),
+                TypedValue.complexToDimensionPixelSize(spec.mTopRightRadius, metrics),
+                TypedValue.complexToDimensionPixelSize(spec.mBottomRightRadius, metrics),
+                TypedValue.complexToDimensionPixelSize(spec.mBottomLeftRadius, metrics));
+
+        if (spec.mDrawable != 0) {
+            setChild(ResourcesCompat.getDrawable(r, spec.mDrawable, theme), r, spec.mDrawable, density);
+        }
+
+        int color = spec.mColorRes != 0 ? ResourcesCompat.getColor(r, spec.mColorRes, theme) : spec.mColor;
+        state.mPaint.setColor(color);
+        mCheckedOpacity = false;
+        state.mRasterMode = spec.mRasterMode;
+        internState(density);
     }
 
     @NonNull
@@ -190,15 +1084,59 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
     @Override
     public void inflate(@NonNull Resources r, @NonNull XmlPullParser parser, @NonNull AttributeSet attrs,
                         @Nullable Resources.Theme theme) {
-        final PlaceholderState state = mPlaceholderState;
+        final boolean metrics = PlaceholderMetrics.sEnabled;
+        final long token = metrics ? PlaceholderMetrics.begin(PlaceholderMetrics.SECTION_INFLATE) : 0;
+        inflateCached(r, attrs, theme);
+        if (metrics) {
+            PlaceholderMetrics.end(PlaceholderMetrics.SECTION_INFLATE, token);
+        }
+    }
+
+    /**
+     * 内容相同的 xml 只解析一次, 之后直接使用缓存的 state, 见 {@link PlaceholderStateCache}
+     */
+    private void inflateCached(@NonNull Resources r, @NonNull AttributeSet attrs, @Nullable Resources.Theme theme) {
+        final int density = resolveDensity2(r, 0);
+        final PlaceholderStateCache.AttrsKey key = PlaceholderStateCache.keyOf(r, attrs, density, theme);
+        if (key == null) {
+            // ?attr/ 会按这个 theme 解析, 不能给其他 theme 使用, 也不参与 intern
+            ensureOwnState().mThemeDependent = theme != null;
+            inflateInner(r, attrs, theme);
+            return;
+        }
+        PlaceholderState state = PlaceholderStateCache.get(key);
+        if (state == null) {
+            // ?attr/ 颜色保留到 applyTheme 时解析, 缓存的 state 与 theme 无关
+            inflateInner(r, attrs, key.isThemed() ? null : theme);
+            state = PlaceholderStateCache.put(key, mPlaceholderState);
+            if (state == mPlaceholderState && (!key.isThemed() || theme == null)) {
+                return;
+            }
+        }
+        if (key.isThemed() && theme != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            state = state.forTheme(theme);
+        }
+        mPlaceholderState = state.forDensity(density);
+        mOwnsState = false;
+        mGeometryDirty = true;
+        mCheckedOpacity = false;
+        if (mChildDrawable != null) {
+            mChildDrawable.setCallback(null);
+            mChildDrawable = null;
+        }
+        mChildMutated = false;
+        initChild(r);
+    }
+
+    private void inflateInner(@NonNull Resources r, @NonNull AttributeSet attrs, @Nullable Resources.Theme theme) {
+        final PlaceholderState state = ensureOwnState();
         final int density = resolveDensity2(r, 0);
         state.setDensity(density);
+        mGeometryDirty = true;
 
         TypedArray a = makeAttributes(r, theme, attrs);
 
         int radius = a.getDimensionPixelSize(R.styleable.PlaceholderDrawable_android_radius, 0);
-        setCornerRadius(radius);
-
         final int topLeftRadius = a.getDimensionPixelSize(
                 R.styleable.PlaceholderDrawable_android_topLeftRadius, radius);
         final int topRightRadius = a.getDimensionPixelSize(
@@ -207,36 +1145,106 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
                 R.styleable.PlaceholderDrawable_android_bottomLeftRadius, radius);
         final int bottomRightRadius = a.getDimensionPixelSize(
                 R.styleable.PlaceholderDrawable_android_bottomRightRadius, radius);
-        if (topLeftRadius != radius || topRightRadius != radius ||
-                bottomLeftRadius != radius || bottomRightRadius != radius) {
-            // The corner radii are specified in clockwise order (see Path.addRoundRect())
-            setCornerRadii(new float[]{
-                    topLeftRadius, topLeftRadius,
-                    topRightRadius, topRightRadius,
-                    bottomRightRadius, bottomRightRadius,
-                    bottomLeftRadius, bottomLeftRadius
-            });
-        }
+        applyRadii(radius, topLeftRadius, topRightRadius, bottomRightRadius, bottomLeftRadius);
 
-        Drawable dr = a.getDrawable(R.styleable.PlaceholderDrawable_android_drawable);
-        if (dr != null) {
-            ChildDrawable childDrawable = new ChildDrawable(density);
-            childDrawable.mDrawable = dr;
-            state.mChild = childDrawable;
+        setChild(a.getDrawable(R.styleable.PlaceholderDrawable_android_drawable), r,
+                a.getResourceId(R.styleable.PlaceholderDrawable_android_drawable, 0), density);
+
+        final float fraction = a.getFloat(R.styleable.PlaceholderDrawable_logoMaxFraction, state.mLogoMaxFraction);
+        if (fraction > 0) {
+            state.mLogoMaxFraction = fraction;
         }
 
+        state.mThemeAttrs = null;
         final Paint paint = state.mPaint;
         int color = paint.getColor();
-        color = a.getColor(R.styleable.PlaceholderDrawable_android_color, color);
+        color = readColor(a, R.styleable.PlaceholderDrawable_android_color, color,
+                state, PlaceholderState.THEME_COLOR);
         paint.setColor(color);
+        mCheckedOpacity = false;
+
+        state.mGradientType = a.getInt(R.styleable.PlaceholderDrawable_gradientType, state.mGradientType);
+        state.mGradientStartColor = readColor(a, R.styleable.PlaceholderDrawable_android_startColor,
+                state.mGradientStartColor, state, PlaceholderState.THEME_GRADIENT_START);
+        state.mGradientEndColor = readColor(a, R.styleable.PlaceholderDrawable_android_endColor,
+                state.mGradientEndColor, state, PlaceholderState.THEME_GRADIENT_END);
+        state.mGradientAngle = a.getFloat(R.styleable.PlaceholderDrawable_android_angle, state.mGradientAngle);
+
+        final int fps = a.getInt(R.styleable.PlaceholderDrawable_logoMaxFps, state.mLogoMaxFps);
+        if (fps >= 0) {
+            state.mLogoMaxFps = fps;
+        }
+
+        final String previewHash = a.getString(R.styleable.PlaceholderDrawable_previewHash);
+        if (previewHash != null) {
+            state.mPreviewHash = previewHash;
+        }
+
+        state.mRasterMode = a.getBoolean(R.styleable.PlaceholderDrawable_rasterMode, state.mRasterMode);
+
+        state.mShimmer = a.getBoolean(R.styleable.PlaceholderDrawable_shimmer, state.mShimmer);
+        state.mShimmerColor = readColor(a, R.styleable.PlaceholderDrawable_shimmerColor, state.mShimmerColor,
+                state, PlaceholderState.THEME_SHIMMER_COLOR);
+        final int duration = a.getInt(R.styleable.PlaceholderDrawable_shimmerDuration, state.mShimmerDuration);
+        if (duration > 0) {
+            state.mShimmerDuration = duration;
+        }
 
         a.recycle();
+        internState(density);
+    }
+
+    /**
+     * 没有 theme 或者 theme 中没有定义时 ?attr/ 引用无法解析, 记录下来等 applyTheme 时再解析
+     */
+    private static int readColor(@NonNull TypedArray a, int index, int defValue,
+                                 @NonNull PlaceholderState state, int themeIndex) {
+        final TypedValue value = a.peekValue(index);
+        if (value != null && value.type == TypedValue.TYPE_ATTRIBUTE) {
+            state.setThemeAttr(themeIndex, value.data);
+            return defValue;
+        }
+        return a.getColor(index, defValue);
+    }
+
+    @Override
+    public boolean canApplyTheme() {
+        return mPlaceholderState.canApplyTheme();
+    }
+
+    /**
+     * 共享的 state 直接换成按 theme 缓存好的 state, 日夜间切换时不需要重新解析 xml
+     * 自己修改过的 state 就地解析
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void applyTheme(@NonNull Resources.Theme t) {
+        super.applyTheme(t);
+        final PlaceholderState state = mPlaceholderState;
+        if (!state.canApplyTheme()) {
+            return;
+        }
+        if (mOwnsState) {
+            state.applyThemeColors(state.resolveThemeColors(t));
+        } else {
+            final PlaceholderState themed = state.forTheme(t);
+            if (themed == state) {
+                return;
+            }
+            mPlaceholderState = themed;
+        }
+        mGeometryDirty = true;
+        mCheckedOpacity = false;
+        invalidateContent();
+        invalidateSelf();
     }
 
     @Nullable
     @Override
     public ConstantState getConstantState() {
         mPlaceholderState.mChangingConfigurations = getChangingConfigurations();
+        // state 交出去之后就可能被共享了
+        mOwnsState = false;
         return mPlaceholderState;
     }
 
@@ -245,14 +1253,46 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
         return super.getChangingConfigurations() | mPlaceholderState.getChangingConfigurations();
     }
 
+    /**
+     * logo 的刷新不直接 invalidate, 交给 ShimmerClock 在下一帧合并处理, 并按 logoMaxFps 限制帧率
+     * 这里只涉及 logo 的内容, 不影响 opacity
+     */
     @Override
     public void invalidateDrawable(@NonNull Drawable who) {
-        mPlaceholderState.invalidateCache();
+        checkChildSizeChanged();
+        invalidateContent();
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            invalidateSelf();
+            return;
+        }
+        ShimmerClock.get().requestInvalidate(this);
+    }
+
+    /**
+     * ShimmerClock 每帧回调
+     *
+     * @return false 表示还没到下一次刷新的时间, 需要在之后的帧再回调
+     */
+    boolean onLogoFrame(long frameTimeNanos) {
+        final int fps = mPlaceholderState.mLogoMaxFps;
+        if (fps > 0 && mLastLogoFrameNanos != 0
+                && frameTimeNanos - mLastLogoFrameNanos < 1000000000L / fps) {
+            return false;
+        }
+        mLastLogoFrameNanos = frameTimeNanos;
         invalidateSelf();
+        return true;
     }
 
+    /**
+     * AnimationDrawable 之类通过 schedule 切帧的 logo, 推迟到满足帧率限制的时间
+     */
     @Override
     public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        final int fps = mPlaceholderState.mLogoMaxFps;
+        if (fps > 0) {
+            when = Math.max(when, SystemClock.uptimeMillis() + 1000L / fps);
+        }
         scheduleSelf(what, when);
     }
 
@@ -264,10 +1304,18 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
     @Override
     public boolean setVisible(boolean visible, boolean restart) {
         boolean changed = super.setVisible(visible, restart);
-        if (mPlaceholderState.mChild != null) {
-            if (mPlaceholderState.mChild.mDrawable != null) {
-                mPlaceholderState.mChild.mDrawable.setVisible(visible, restart);
+        if (!visible) {
+            stopShimmer();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mRenderNode != null) {
+                mRenderNode.discard();
             }
+        } else if (changed && mPlaceholderState.mShimmer) {
+            // 重新可见时在下一次 draw 中注册
+            invalidateSelf();
+        }
+        Drawable dr = getChild();
+        if (dr != null) {
+            dr.setVisible(visible, restart);
         }
         return changed;
     }
@@ -276,43 +1324,98 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
     @Override
     public Drawable mutate() {
         if (!mMutated && super.mutate() == this) {
-            mPlaceholderState = createConstantState(mPlaceholderState, null);
-            final ChildDrawable child = mPlaceholderState.mChild;
-            Drawable dr = child.mDrawable;
+            final PlaceholderState state = ensureOwnState();
+            PlaceholderMetrics.mutated();
+            Drawable dr = getChild();
             if (dr != null) {
-                dr.mutate();
+                mutateChild();
+                // 之后从这个 state 创建的 logo 使用 mutate 后的 ConstantState
+                final ChildDrawable child = state.mChild;
+                state.mChild = new ChildDrawable(dr, child.mResources, child.mResId, child.mDensity);
             }
+            mGeometryDirty = true;
             mMutated = true;
         }
         return this;
     }
 
-    private PlaceholderState createConstantState(@Nullable PlaceholderState state, @Nullable Resources res) {
-        return new PlaceholderState(state, this, res);
-    }
-
     final static class PlaceholderState extends ConstantState {
 
         int mChangingConfigurations;
         ChildDrawable mChild;
         int mDensity;
-        boolean mCheckedOpacity;
-        int mOpacity;
         int mChildChangingConfigurations;
         private Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         private float mRadius;
         private float[] mRadiusArray;
+        /**
+         * setAlpha 设置的透明度, 和背景色的 alpha 分开保存, shimmer 只使用这个值
+         */
+        int mAlpha = 0xFF;
+        boolean mRasterMode;
+        boolean mShimmer;
+        int mShimmerColor = DEFAULT_SHIMMER_COLOR;
+        int mShimmerDuration = DEFAULT_SHIMMER_DURATION;
+        float mLogoMaxFraction = 1f;
+        int mLogoMaxFps;
+        int mGradientType = GRADIENT_NONE;
+        int mGradientStartColor;
+        int mGradientEndColor;
+        float mGradientAngle;
+        String mPreviewHash;
+
+        /**
+         * 按 density 换算好的 state, 每个 density 只计算一次, 只在 mDensitySource 为 null 的 state 上保存
+         */
+        private SparseArray<PlaceholderState> mDensityStates;
+        private PlaceholderState mDensitySource;
+
+        static final int THEME_COLOR = 0;
+        static final int THEME_SHIMMER_COLOR = 1;
+        static final int THEME_GRADIENT_START = 2;
+        static final int THEME_GRADIENT_END = 3;
+        private static final int THEME_ATTR_COUNT = 4;
+
+        /**
+         * 还没有解析的 ?attr/ 颜色, 按 THEME_* 下标保存属性 id, 都已解析时为 null
+         */
+        int[] mThemeAttrs;
+        /**
+         * 带 theme 解析了非颜色的 ?attr/, 不能按资源缓存给其他 theme 使用
+         */
+        boolean mThemeDependent;
+        /**
+         * 按解析出的颜色缓存的 state, 只在 mThemeSource 为 null 的根 state 上保存
+         */
+        private HashMap<ThemeKey, PlaceholderState> mThemedStates;
+        private PlaceholderState mThemeSource;
 
-        PlaceholderState(@Nullable PlaceholderState orig, @NonNull PlaceholderDrawable owner,
-                         @Nullable Resources res) {
-            mDensity = resolveDensity2(res, orig != null ? orig.mDensity : 0);
+        PlaceholderState(@Nullable PlaceholderState orig, int density) {
+            mDensity = density;
 
             if (orig != null) {
-                mChild = new ChildDrawable(orig.mChild, owner, res);
+                PlaceholderMetrics.stateCloned();
+                // ChildDrawable 不可变, 直接共享
+                mChild = orig.mChild;
                 mChangingConfigurations = orig.mChangingConfigurations;
                 mChildChangingConfigurations = orig.mChildChangingConfigurations;
-                mOpacity = orig.mOpacity;
                 mRadius = orig.mRadius;
+                mAlpha = orig.mAlpha;
+                mRasterMode = orig.mRasterMode;
+                mShimmer = orig.mShimmer;
+                mShimmerColor = orig.mShimmerColor;
+                mShimmerDuration = orig.mShimmerDuration;
+                mLogoMaxFraction = orig.mLogoMaxFraction;
+                mLogoMaxFps = orig.mLogoMaxFps;
+                mGradientType = orig.mGradientType;
+                mGradientStartColor = orig.mGradientStartColor;
+                mGradientEndColor = orig.mGradientEndColor;
+                mGradientAngle = orig.mGradientAngle;
+                mPreviewHash = orig.mPreviewHash;
+                if (orig.mThemeAttrs != null) {
+                    mThemeAttrs = orig.mThemeAttrs.clone();
+                }
+                mThemeDependent = orig.mThemeDependent;
                 if (orig.mRadiusArray != null) {
                     mRadiusArray = orig.mRadiusArray.clone();
                 }
@@ -324,28 +1427,110 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
                 mPaint.setColorFilter(orig.mPaint.getColorFilter());
                 mPaint.setAlpha(orig.mPaint.getAlpha());
 
-            } else {
-                mChild = null;
             }
 
             mPaint.setStyle(Paint.Style.FILL);
 
         }
 
+        @NonNull
+        PlaceholderState forDensity(int density) {
+            if (density == mDensity) {
+                return this;
+            }
+            if (mDensitySource != null) {
+                return mDensitySource.forDensity(density);
+            }
+            synchronized (this) {
+                if (mDensityStates == null) {
+                    mDensityStates = new SparseArray<>(2);
+                }
+                PlaceholderState state = mDensityStates.get(density);
+                if (state == null) {
+                    state = new PlaceholderState(this, density);
+                    state.mDensitySource = this;
+                    mDensityStates.put(density, state);
+                }
+                return state;
+            }
+        }
+
         private void applyDensityScaling(int sourceDensity, int targetDensity) {
+            final boolean metrics = PlaceholderMetrics.sEnabled;
+            final long token = metrics ? PlaceholderMetrics.begin(PlaceholderMetrics.SECTION_RESCALE) : 0;
+            applyDensityScalingInner(sourceDensity, targetDensity);
+            if (metrics) {
+                PlaceholderMetrics.end(PlaceholderMetrics.SECTION_RESCALE, token);
+            }
+        }
+
+        private void applyDensityScalingInner(int sourceDensity, int targetDensity) {
             if (mRadius > 0) {
                 mRadius = scaleFromDensity3(mRadius, sourceDensity, targetDensity);
             }
             if (mRadiusArray != null) {
-                mRadiusArray[0] = scaleFromDensity2(
-                        (int) mRadiusArray[0], sourceDensity, targetDensity);
-                mRadiusArray[1] = scaleFromDensity2(
-                        (int) mRadiusArray[1], sourceDensity, targetDensity);
-                mRadiusArray[2] = scaleFromDensity2(
-                        (int) mRadiusArray[2], sourceDensity, targetDensity);
-                mRadiusArray[3] = scaleFromDensity2(
-                        (int) mRadiusArray[3], sourceDensity, targetDensity);
+                for (int i = 0; i < mRadiusArray.length; i++) {
+                    mRadiusArray[i] = scaleFromDensity3(mRadiusArray[i], sourceDensity, targetDensity);
+                }
+            }
+        }
+
+        /**
+         * 只有样式可以完整比较的 state 才能被共享: 没有 colorFilter, logo 来自资源
+         */
+        boolean canIntern() {
+            return mDensitySource == null && mThemeSource == null && !mThemeDependent && mPaint.getColorFilter() == null && mPaint.getShader() == null
+                    && (mChild == null || mChild.mResId != 0);
+        }
+
+        boolean specEquals(@NonNull PlaceholderState o) {
+            return mDensity == o.mDensity
+                    && mPaint.getColor() == o.mPaint.getColor()
+                    && Float.compare(mRadius, o.mRadius) == 0
+                    && Arrays.equals(mRadiusArray, o.mRadiusArray)
+                    && mAlpha == o.mAlpha
+                    && (mChild == null ? o.mChild == null : o.mChild != null && mChild.sameAs(o.mChild))
+                    && mRasterMode == o.mRasterMode
+                    && mShimmer == o.mShimmer
+                    && mShimmerColor == o.mShimmerColor
+                    && mShimmerDuration == o.mShimmerDuration
+                    && Float.compare(mLogoMaxFraction, o.mLogoMaxFraction) == 0
+                    && mLogoMaxFps == o.mLogoMaxFps
+                    && mGradientType == o.mGradientType
+                    && mGradientStartColor == o.mGradientStartColor
+                    && mGradientEndColor == o.mGradientEndColor
+                    && Float.compare(mGradientAngle, o.mGradientAngle) == 0
+                    && (mPreviewHash == null ? o.mPreviewHash == null : mPreviewHash.equals(o.mPreviewHash))
+                    && mChangingConfigurations == o.mChangingConfigurations
+                    && mChildChangingConfigurations == o.mChildChangingConfigurations
+                    && Arrays.equals(mThemeAttrs, o.mThemeAttrs);
+        }
+
+        int specHashCode() {
+            int result = mDensity;
+            result = 31 * result + mPaint.getColor();
+            result = 31 * result + Float.floatToIntBits(mRadius);
+            result = 31 * result + Arrays.hashCode(mRadiusArray);
+            result = 31 * result + (mChild != null ? mChild.mResId : 0);
+            result = 31 * result + (mChild != null ? mChild.mDensity : 0);
+            result = 31 * result + (mShimmer ? 1 : 0);
+            result = 31 * result + mGradientType;
+            result = 31 * result + mGradientStartColor;
+            result = 31 * result + (mPreviewHash != null ? mPreviewHash.hashCode() : 0);
+            result = 31 * result + Arrays.hashCode(mThemeAttrs);
+            return result;
+        }
+
+        boolean hasCorners() {
+            if (mRadiusArray != null) {
+                for (float r : mRadiusArray) {
+                    if (r > 0) {
+                        return true;
+                    }
+                }
+                return false;
             }
+            return mRadius > 0;
         }
 
         void setCornerRadius(float radius) {
@@ -371,9 +1556,83 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
             }
         }
 
+        void setThemeAttr(int index, int attr) {
+            if (mThemeAttrs == null) {
+                mThemeAttrs = new int[THEME_ATTR_COUNT];
+            }
+            mThemeAttrs[index] = attr;
+        }
+
+        /**
+         * @return 按 THEME_* 下标排列的颜色, theme 中找不到的属性保持当前值
+         */
+        @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+        @NonNull
+        int[] resolveThemeColors(@NonNull Resources.Theme t) {
+            final int[] colors = {mPaint.getColor(), mShimmerColor, mGradientStartColor, mGradientEndColor};
+            final TypedValue value = new TypedValue();
+            for (int i = 0; i < THEME_ATTR_COUNT; i++) {
+                final int attr = mThemeAttrs[i];
+                if (attr == 0 || !t.resolveAttribute(attr, value, true)) {
+                    continue;
+                }
+                if (value.type >= TypedValue.TYPE_FIRST_COLOR_INT && value.type <= TypedValue.TYPE_LAST_COLOR_INT) {
+                    colors[i] = value.data;
+                } else if (value.resourceId != 0) {
+                    colors[i] = ResourcesCompat.getColor(t.getResources(), value.resourceId, t);
+                }
+            }
+            return colors;
+        }
+
+        void applyThemeColors(@NonNull int[] colors) {
+            mPaint.setColor(colors[THEME_COLOR]);
+            mShimmerColor = colors[THEME_SHIMMER_COLOR];
+            mGradientStartColor = colors[THEME_GRADIENT_START];
+            mGradientEndColor = colors[THEME_GRADIENT_END];
+        }
+
+        /**
+         * 解析结果相同的 theme (例如重建后的 Activity) 共用同一个 state, 返回当前 density 的版本
+         */
+        @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+        @NonNull
+        PlaceholderState forTheme(@NonNull Resources.Theme t) {
+            PlaceholderState root = mDensitySource != null ? mDensitySource : this;
+            if (root.mThemeSource != null) {
+                root = root.mThemeSource;
+            }
+            final int[] colors = root.resolveThemeColors(t);
+            final ThemeKey key = new ThemeKey(colors);
+            PlaceholderState themed;
+            synchronized (root) {
+                if (root.mThemedStates == null) {
+                    root.mThemedStates = new HashMap<>(4);
+                }
+                themed = root.mThemedStates.get(key);
+                if (themed == null) {
+                    themed = new PlaceholderState(root, root.mDensity);
+                    themed.applyThemeColors(colors);
+                    themed.mThemeSource = root;
+                    root.mThemedStates.put(key, themed);
+                }
+            }
+            return themed.forDensity(mDensity);
+        }
+
         @Override
         public boolean canApplyTheme() {
-            return false;
+            return mThemeAttrs != null;
+        }
+
+        @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+        @NonNull
+        @Override
+        public Drawable newDrawable(@Nullable Resources res, @Nullable Resources.Theme theme) {
+            if (theme == null || mThemeAttrs == null) {
+                return newDrawable(res);
+            }
+            return new PlaceholderDrawable(forTheme(theme), res);
         }
 
         @NonNull
@@ -393,69 +1652,225 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
             return mChangingConfigurations | mChildChangingConfigurations;
         }
 
-        int getOpacity() {
-            if (mCheckedOpacity) {
-                return mOpacity;
-            }
+    }
+
+    /**
+     * 在代码中创建占位图, 样式相同的占位图共用同一个 state
+     * 圆角按 {@link #setDensity(int)} 指定的 density 的像素设置, 默认为 Resources 的 density
+     */
+    public static final class Builder {
+        private final Resources mResources;
+        private int mColor;
+        private float mRadius;
+        private float[] mRadii;
+        private Drawable mLogo;
+        @DrawableRes
+        private int mLogoRes;
+        private int mDensity;
+
+        public Builder(@NonNull Resources res) {
+            mResources = res;
+        }
+
+        @NonNull
+        public Builder setColor(@ColorInt int color) {
+            mColor = color;
+            return this;
+        }
+
+        @NonNull
+        public Builder setCornerRadius(float radius) {
+            mRadius = radius;
+            mRadii = null;
+            return this;
+        }
+
+        /**
+         * @param radii 长度为 8, 顺序见 {@link Path#addRoundRect(RectF, float[], Path.Direction)}
+         */
+        @NonNull
+        public Builder setCornerRadii(@Nullable float[] radii) {
+            mRadii = radii != null ? radii.clone() : null;
+            return this;
+        }
+
+        @NonNull
+        public Builder setLogo(@DrawableRes int resId) {
+            mLogoRes = resId;
+            mLogo = null;
+            return this;
+        }
+
+        /**
+         * 代码传入的 logo 无法判断是否和其他占位图相同, 这样创建的 state 不会被共享
+         */
+        @NonNull
+        public Builder setLogo(@Nullable Drawable logo) {
+            mLogo = logo;
+            mLogoRes = 0;
+            return this;
+        }
+
+        @NonNull
+        public Builder setDensity(int density) {
+            mDensity = density;
+            return this;
+        }
 
-            int op;
-            if (mChild != null && mChild.mDrawable != null) {
-                op = mChild.mDrawable.getOpacity();
+        @NonNull
+        public PlaceholderDrawable build() {
+            final PlaceholderDrawable drawable = new PlaceholderDrawable();
+            final PlaceholderState state = drawable.ensureOwnState();
+            final int density = mDensity > 0 ? mDensity : resolveDensity2(mResources, 0);
+            state.setDensity(density);
+            if (mRadii != null) {
+                drawable.setCornerRadii(mRadii.clone());
             } else {
-                op = PixelFormat.TRANSPARENT;
+                drawable.setCornerRadius(mRadius);
             }
+            if (mLogoRes != 0) {
+                drawable.setChild(ResourcesCompat.getDrawable(mResources, mLogoRes, null),
+                        mResources, mLogoRes, density);
+            } else if (mLogo != null) {
+                drawable.setChild(mLogo, null, 0, density);
+            }
+            state.mPaint.setColor(mColor);
+            drawable.internState(resolveDensity2(mResources, density));
+            return drawable;
+        }
+    }
 
-            mOpacity = Drawable.resolveOpacity(op, mOpacity);
-            mCheckedOpacity = true;
-            return op;
+    private static final class ThemeKey {
+        private final int[] mColors;
+        private final int mHash;
+
+        ThemeKey(@NonNull int[] colors) {
+            mColors = colors;
+            mHash = Arrays.hashCode(colors);
         }
 
-        void invalidateCache() {
-            mCheckedOpacity = false;
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof ThemeKey && Arrays.equals(mColors, ((ThemeKey) o).mColors);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
         }
     }
 
-    final static class ChildDrawable {
-        Drawable mDrawable;
+    /**
+     * 背景和 logo 录制到 RenderNode 中, bounds 和内容不变时直接回放, 不再重复生成绘制指令
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private static final class ContentRenderNode {
+        private final RenderNode mNode = new RenderNode("PlaceholderDrawable");
+        private boolean mValid;
+
+        void draw(@NonNull PlaceholderDrawable owner, @NonNull Canvas canvas, @NonNull Rect bounds) {
+            if (!mValid || !mNode.hasDisplayList()) {
+                mNode.setPosition(bounds);
+                final RecordingCanvas rc = mNode.beginRecording(bounds.width(), bounds.height());
+                try {
+                    rc.translate(-bounds.left, -bounds.top);
+                    owner.drawContent(rc);
+                } finally {
+                    mNode.endRecording();
+                }
+                mValid = true;
+            }
+            canvas.drawRenderNode(mNode);
+        }
 
-        int mDensity;
+        void invalidate() {
+            mValid = false;
+        }
+
+        void discard() {
+            mNode.discardDisplayList();
+            mValid = false;
+        }
+    }
+
+    /**
+     * logo 的模板, 创建后不再修改, 可以被多个 PlaceholderState 共享
+     */
+    final static class ChildDrawable {
+        /**
+         * 始终强引用, newDrawable 时不需要再从资源解码; 原尺寸的位图在所有共享这个模板的 state 之间只有一份
+         */
+        private final ConstantState mConstantState;
+        /**
+         * 没有 ConstantState 的 logo 无法复制, 只能直接使用
+         */
+        final Drawable mDrawable;
+        /**
+         * logo 的资源, 用于按目标尺寸采样解码, 代码设置的 logo 为 0
+         */
+        final Resources mResources;
+        @DrawableRes
+        final int mResId;
 
-        ChildDrawable(int density) {
+        final int mDensity;
+        /**
+         * 解析 logo 时的 Configuration, 资源中的 logo 才有, 同一个资源 id 在不同 Configuration 下可能是不同的图
+         */
+        final ResourceConfigKey mConfig;
+        private final boolean mResourceBitmap;
+
+        ChildDrawable(@NonNull Drawable dr, @Nullable Resources res, @DrawableRes int resId, int density) {
+            mConstantState = dr.getConstantState();
+            mDrawable = mConstantState == null ? dr : null;
+            mResources = res;
+            mResId = resId;
             mDensity = density;
+            mConfig = res != null && resId != 0 ? ResourceConfigKey.of(res) : null;
+            mResourceBitmap = mConfig != null && mConstantState != null
+                    && dr instanceof BitmapDrawable && !dr.isStateful();
+        }
+
+        /**
+         * 资源中的 logo 按资源 id, density 和 Configuration 比较;
+         * 代码设置的 logo (资源 id 为 0) 无法判断内容, 只有同一个 ConstantState 才相同
+         */
+        boolean sameAs(@NonNull ChildDrawable o) {
+            if (this == o) {
+                return true;
+            }
+            if (mResId == 0 || o.mResId == 0) {
+                return mResId == o.mResId && mConstantState != null && mConstantState == o.mConstantState;
+            }
+            return mResId == o.mResId && mDensity == o.mDensity && mConfig.equals(o.mConfig);
+        }
+
+        /**
+         * 资源中的位图 logo, 可以按目标尺寸从资源采样解码
+         */
+        boolean isResourceBitmap() {
+            return mResourceBitmap;
         }
 
-        ChildDrawable(@NonNull ChildDrawable orig, @NonNull PlaceholderDrawable owner,
-                      @Nullable Resources res) {
-            final Drawable dr = orig.mDrawable;
+        @NonNull
+        Drawable newDrawable(@NonNull PlaceholderDrawable owner, @Nullable Resources res) {
             final Drawable clone;
-            if (dr != null) {
-                final ConstantState cs = dr.getConstantState();
-                if (cs == null) {
-                    clone = dr;
-                    if (dr.getCallback() != null) {
-                        // This drawable already has an owner.
-                        Log.w("PlaceholderDrawable", "Invalid drawable added to PlaceholderDrawable! Drawable already "
-                                        + "belongs to another owner but does not expose a constant state.",
-                                new RuntimeException());
-                    }
-                } else if (res != null) {
-                    clone = cs.newDrawable(res);
-                } else {
-                    clone = cs.newDrawable();
+            if (mDrawable != null) {
+                clone = mDrawable;
+                if (clone.getCallback() != null && clone.getCallback() != owner) {
+                    // This drawable already has an owner.
+                    Log.w("PlaceholderDrawable", "Invalid drawable added to PlaceholderDrawable! Drawable already "
+                                    + "belongs to another owner but does not expose a constant state.",
+                            new RuntimeException());
                 }
-                clone.setBounds(dr.getBounds());
-                clone.setLevel(dr.getLevel());
-
-                // Set the callback last to prevent invalidation from
-                // propagating before the constant state has been set.
-                clone.setCallback(owner);
             } else {
-                clone = null;
+                PlaceholderMetrics.childCloned();
+                clone = res != null ? mConstantState.newDrawable(res) : mConstantState.newDrawable();
             }
 
-            mDrawable = clone;
-
-            mDensity = resolveDensity2(res, orig.mDensity);
+            // Set the callback last to prevent invalidation from
+            // propagating before the constant state has been set.
+            clone.setCallback(owner);
+            return clone;
         }
     }
 
@@ -464,23 +1879,6 @@ public class PlaceholderDrawable extends Drawable implements Drawable.Callback {
         return densityDpi == 0 ? DisplayMetrics.DENSITY_DEFAULT : densityDpi;
     }
 
-    private static int scaleFromDensity2(int pixels, int sourceDensity, int targetDensity) {
-        if (pixels == 0 || sourceDensity == targetDensity) {
-            return pixels;
-        }
-
-        final float result = pixels * targetDensity / (float) sourceDensity;
-
-        final int rounded = Math.round(result);
-        if (rounded != 0) {
-            return rounded;
-        } else if (pixels > 0) {
-            return 1;
-        } else {
-            return -1;
-        }
-    }
-
     private static float scaleFromDensity3(float pixels, int sourceDensity, int targetDensity) {
         return pixels * targetDensity / sourceDensity;
     }
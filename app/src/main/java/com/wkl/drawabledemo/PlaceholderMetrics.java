@@ -0,0 +1,284 @@
+package com.wkl.drawabledemo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.os.TraceCompat;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 占位图的埋点入口, 没有设置 Listener 且未开启 Trace 时, 热路径上只有一次 volatile 读
+ */
+public final class PlaceholderMetrics {
+
+    static final int SECTION_INFLATE = 0;
+    static final int SECTION_DRAW = 1;
+    static final int SECTION_RESCALE = 2;
+
+    private static final String[] SECTION_NAMES = {
+            "Placeholder:inflate",
+            "Placeholder:draw",
+            "Placeholder:rescale",
+    };
+
+    public interface Listener {
+
+        void onInflate(long durationNanos);
+
+        void onDraw(long durationNanos);
+
+        /**
+         * PlaceholderState 被复制, newDrawable 或者 mutate 时都会发生
+         */
+        void onStateClone();
+
+        void onMutate();
+
+        void onChildClone();
+
+        void onDensityRescale(long durationNanos);
+
+        void onEnject(long durationNanos);
+    }
+
+    private static volatile Listener sListener;
+    private static volatile boolean sTraceEnabled;
+    /**
+     * sListener != null || sTraceEnabled, 热路径上只读这一个字段
+     */
+    static volatile boolean sEnabled;
+
+    private PlaceholderMetrics() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static void setListener(@Nullable Listener listener) {
+        sListener = listener;
+        sEnabled = listener != null || sTraceEnabled;
+    }
+
+    /**
+     * 开启后 inflate, draw 以及 density 换算会包在 android.os.Trace 的 section 中
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        sTraceEnabled = enabled;
+        sEnabled = enabled || sListener != null;
+    }
+
+    /**
+     * @return 传给 {@link #end(int, long)} 的 token, 开始时间的最低位记录这次是否开启了 Trace section,
+     * 中途切换 Trace 开关时 begin / end 仍然成对
+     */
+    static long begin(int section) {
+        final boolean trace = sTraceEnabled;
+        if (trace) {
+            TraceCompat.beginSection(SECTION_NAMES[section]);
+        }
+        return (System.nanoTime() & ~1L) | (trace ? 1L : 0L);
+    }
+
+    static void end(int section, long token) {
+        final long duration = System.nanoTime() - (token & ~1L);
+        if ((token & 1L) != 0) {
+            TraceCompat.endSection();
+        }
+        final Listener listener = sListener;
+        if (listener == null) {
+            return;
+        }
+        switch (section) {
+            case SECTION_INFLATE:
+                listener.onInflate(duration);
+                break;
+            case SECTION_DRAW:
+                listener.onDraw(duration);
+                break;
+            case SECTION_RESCALE:
+                listener.onDensityRescale(duration);
+                break;
+            default:
+                break;
+        }
+    }
+
+    static void stateCloned() {
+        final Listener listener = sListener;
+        if (listener != null) {
+            listener.onStateClone();
+        }
+    }
+
+    static void mutated() {
+        final Listener listener = sListener;
+        if (listener != null) {
+            listener.onMutate();
+        }
+    }
+
+    static void enjected(long durationNanos) {
+        final Listener listener = sListener;
+        if (listener != null) {
+            listener.onEnject(durationNanos);
+        }
+    }
+
+    static void childCloned() {
+        final Listener listener = sListener;
+        if (listener != null) {
+            listener.onChildClone();
+        }
+    }
+
+    /**
+     * 线程安全的计数器 + 耗时直方图实现
+     */
+    public static class Recorder implements Listener {
+
+        private final Histogram mInflate = new Histogram();
+        private final Histogram mDraw = new Histogram();
+        private final Histogram mDensityRescale = new Histogram();
+        private final Histogram mEnject = new Histogram();
+        private final AtomicLong mStateClones = new AtomicLong();
+        private final AtomicLong mMutates = new AtomicLong();
+        private final AtomicLong mChildClones = new AtomicLong();
+
+        @Override
+        public void onInflate(long durationNanos) {
+            mInflate.record(durationNanos);
+        }
+
+        @Override
+        public void onDraw(long durationNanos) {
+            mDraw.record(durationNanos);
+        }
+
+        @Override
+        public void onStateClone() {
+            mStateClones.incrementAndGet();
+        }
+
+        @Override
+        public void onMutate() {
+            mMutates.incrementAndGet();
+        }
+
+        @Override
+        public void onChildClone() {
+            mChildClones.incrementAndGet();
+        }
+
+        @Override
+        public void onDensityRescale(long durationNanos) {
+            mDensityRescale.record(durationNanos);
+        }
+
+        @Override
+        public void onEnject(long durationNanos) {
+            mEnject.record(durationNanos);
+        }
+
+        @NonNull
+        public Histogram getInflate() {
+            return mInflate;
+        }
+
+        @NonNull
+        public Histogram getDraw() {
+            return mDraw;
+        }
+
+        @NonNull
+        public Histogram getDensityRescale() {
+            return mDensityRescale;
+        }
+
+        @NonNull
+        public Histogram getEnject() {
+            return mEnject;
+        }
+
+        @NonNull
+        public AtomicLong getStateClones() {
+            return mStateClones;
+        }
+
+        @NonNull
+        public AtomicLong getMutates() {
+            return mMutates;
+        }
+
+        @NonNull
+        public AtomicLong getChildClones() {
+            return mChildClones;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "inflate=" + mInflate + ", draw=" + mDraw + ", densityRescale=" + mDensityRescale
+                    + ", enject=" + mEnject + ", stateClones=" + mStateClones + ", mutates=" + mMutates
+                    + ", childClones=" + mChildClones;
+        }
+    }
+
+    /**
+     * 以 2 的幂划分桶的耗时直方图, 第 i 个桶记录 [2^i, 2^(i+1)) 纳秒
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mTotal = new AtomicLong();
+
+        void record(long durationNanos) {
+            final int bucket = durationNanos <= 0 ? 0
+                    : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(durationNanos));
+            mBuckets.incrementAndGet(bucket);
+            mCount.incrementAndGet();
+            mTotal.addAndGet(durationNanos);
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getTotalNanos() {
+            return mTotal.get();
+        }
+
+        /**
+         * @return 第 percentile 百分位所在桶的上界 (纳秒)
+         */
+        public long getPercentileNanos(float percentile) {
+            final long count = mCount.get();
+            if (count == 0) {
+                return 0;
+            }
+            final long target = (long) Math.ceil(count * percentile / 100f);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += mBuckets.get(i);
+                if (seen >= target) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 1L << BUCKETS;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            final long count = getCount();
+            return String.format(Locale.US, "{count=%d, avg=%dns, p50<%dns, p99<%dns}", count,
+                    count == 0 ? 0 : getTotalNanos() / count, getPercentileNanos(50), getPercentileNanos(99));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.wkl.drawabledemo;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.Xml;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 在子线程提前 inflate 占位图, 首次使用时直接从 ConstantState 创建
+ * state 放入 {@link PlaceholderStateCache}, 通过同步的 LruCache 发布, put 之后不再修改, 主线程读到的是完整构建好的 state
+ * 子线程中不使用 Theme (Theme 不是线程安全的), 依赖主题属性的占位图不要预加载
+ */
+public final class PlaceholderPreloader {
+
+    private static final String TAG = "PlaceholderPreloader";
+
+    private PlaceholderPreloader() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static void preload(@NonNull Context context, @NonNull Executor executor,
+                               @NonNull @DrawableRes final int... resIds) {
+        final Resources res = context.getApplicationContext().getResources();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int resId : resIds) {
+                    if (PlaceholderStateCache.contains(res, resId)) {
+                        continue;
+                    }
+                    try {
+                        final PlaceholderDrawable drawable = inflate(res, resId);
+                        if (drawable != null) {
+                            PlaceholderStateCache.put(res, resId,
+                                    (PlaceholderDrawable.PlaceholderState) drawable.getConstantState());
+                        }
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        });
+    }
+
+    public static void clear() {
+        PlaceholderStateCache.clear();
+    }
+
+    @Nullable
+    private static PlaceholderDrawable inflate(@NonNull Resources res, @DrawableRes int resId) throws Exception {
+        final PlaceholderDrawable fromSpec = PlaceholderDrawable.createFromSpec(res, resId, null);
+        if (fromSpec != null) {
+            return fromSpec;
+        }
+        final XmlResourceParser parser = res.getXml(resId);
+        try {
+            int type;
+            //noinspection StatementWithEmptyBody
+            while ((type = parser.next()) != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT) {
+            }
+            if (type != XmlPullParser.START_TAG) {
+                return null;
+            }
+            final String name = parser.getName();
+            if (!PlaceholderDrawable.class.getSimpleName().equals(name)
+                    && !PlaceholderDrawable.class.getName().equals(name)) {
+                Log.w(TAG, "Not a PlaceholderDrawable: " + res.getResourceName(resId));
+                return null;
+            }
+            final AttributeSet attrs = Xml.asAttributeSet(parser);
+            return PlaceholderDrawable.createFromXmlInner(res, parser, attrs, null);
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.wkl.drawabledemo;
+
+import androidx.annotation.ColorRes;
+import androidx.annotation.DrawableRes;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 编译期由 placeholder-specs.gradle 从 xml 生成的占位图描述, 见 PlaceholderSpecs
+ * 尺寸都是 TypedValue 的 complex 格式, 运行时按当前 DisplayMetrics 换算
+ */
+final class PlaceholderSpec {
+
+    final int mColor;
+    @ColorRes
+    final int mColorRes;
+    final int mRadius;
+    final int mTopLeftRadius;
+    final int mTopRightRadius;
+    final int mBottomRightRadius;
+    final int mBottomLeftRadius;
+    @DrawableRes
+    final int mDrawable;
+    final boolean mRasterMode;
+
+    PlaceholderSpec(int color, @ColorRes int colorRes, int radius,
+                    int topLeftRadius, int topRightRadius, int bottomRightRadius, int bottomLeftRadius,
+                    @DrawableRes int drawable, boolean rasterMode) {
+        mColor = color;
+        mColorRes = colorRes;
+        mRadius = radius;
+        mTopLeftRadius = topLeftRadius;
+        mTopRightRadius = topRightRadius;
+        mBottomRightRadius = bottomRightRadius;
+        mBottomLeftRadius = bottomLeftRadius;
+        mDrawable = drawable;
+        mRasterMode = rasterMode;
+    }
+}
@@ -0,0 +1,210 @@
+package com.wkl.drawabledemo;
+
+import android.content.res.Resources;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 所有创建入口共用的 PlaceholderState 缓存, 同一个资源同一个 density 只解析一次 xml
+ * {@link PlaceholderDrawable#create} 和预加载按资源 id 查找; AppCompat / 平台 getDrawable / 自定义 View 走 inflate,
+ * inflate 拿不到资源 id, 按 xml 中的原始属性值查找, 内容相同就是同一个资源
+ * 依赖 theme 的颜色保留为 ?attr/ 不解析, 缓存的是与 theme 无关的 state, 使用时再通过 forTheme 得到按 theme 缓存的 state
+ * @color 和 logo 会按 Configuration 选择资源 (例如夜间模式), key 中带上 {@link ResourceConfigKey}
+ * 两个缓存按条目数限制大小, 并随 {@link GlideMemoryPolicy} 的 onTrimMemory 裁剪; LruCache 的方法是同步的, 子线程 put 的 state 可以安全发布
+ */
+final class PlaceholderStateCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final LruCache<ResKey, PlaceholderDrawable.PlaceholderState> sByResId =
+            new LruCache<>(MAX_ENTRIES);
+    private static final LruCache<AttrsKey, PlaceholderDrawable.PlaceholderState> sByAttrs =
+            new LruCache<>(MAX_ENTRIES);
+
+    /**
+     * 可以延迟到 applyTheme 时解析的属性, 其余属性引用 ?attr/ 时只能带 theme 解析, 不缓存
+     */
+    private static final int[] THEMEABLE_ATTRS = {
+            android.R.attr.color,
+            android.R.attr.startColor,
+            android.R.attr.endColor,
+            R.attr.shimmerColor,
+    };
+
+    private PlaceholderStateCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    static PlaceholderDrawable.PlaceholderState get(@NonNull Resources res, @DrawableRes int resId) {
+        if (sByResId.size() == 0) {
+            return null;
+        }
+        return sByResId.get(new ResKey(res, resId));
+    }
+
+    static boolean contains(@NonNull Resources res, @DrawableRes int resId) {
+        return sByResId.get(new ResKey(res, resId)) != null;
+    }
+
+    static void put(@NonNull Resources res, @DrawableRes int resId, @NonNull PlaceholderDrawable.PlaceholderState state) {
+        final ResKey key = new ResKey(res, resId);
+        synchronized (sByResId) {
+            if (sByResId.get(key) == null) {
+                sByResId.put(key, state);
+            }
+        }
+    }
+
+    /**
+     * @return 无法缓存时 (theme 相关的非颜色属性, 或者 API 21 以下需要带 theme 解析) 返回 null
+     */
+    @Nullable
+    static AttrsKey keyOf(@NonNull Resources res, @NonNull AttributeSet attrs, int density,
+                          @Nullable Resources.Theme theme) {
+        final int count = attrs.getAttributeCount();
+        final int[] names = new int[count];
+        final String[] values = new String[count];
+        boolean themed = false;
+        for (int i = 0; i < count; i++) {
+            names[i] = attrs.getAttributeNameResource(i);
+            values[i] = attrs.getAttributeValue(i);
+            if (values[i] != null && values[i].startsWith("?")) {
+                if (!isThemeable(names[i])) {
+                    return null;
+                }
+                themed = true;
+            }
+        }
+        if (themed && theme != null && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return null;
+        }
+        return new AttrsKey(ResourceConfigKey.of(res), density, names, values, themed);
+    }
+
+    @Nullable
+    static PlaceholderDrawable.PlaceholderState get(@NonNull AttrsKey key) {
+        return sByAttrs.get(key);
+    }
+
+    /**
+     * @return 已经缓存的 state, 没有时缓存并返回 state 本身
+     */
+    @NonNull
+    static PlaceholderDrawable.PlaceholderState put(@NonNull AttrsKey key,
+                                                    @NonNull PlaceholderDrawable.PlaceholderState state) {
+        synchronized (sByAttrs) {
+            final PlaceholderDrawable.PlaceholderState old = sByAttrs.get(key);
+            if (old != null) {
+                return old;
+            }
+            sByAttrs.put(key, state);
+            return state;
+        }
+    }
+
+    static void clear() {
+        sByResId.evictAll();
+        sByAttrs.evictAll();
+    }
+
+    static void trimMemory(int level) {
+        GlideMemoryPolicy.trimCache(sByResId, level);
+        GlideMemoryPolicy.trimCache(sByAttrs, level);
+    }
+
+    private static boolean isThemeable(int attr) {
+        for (int themeable : THEMEABLE_ATTRS) {
+            if (themeable == attr) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class ResKey {
+        private final ResourceConfigKey mConfig;
+        private final int mResId;
+
+        ResKey(@NonNull Resources res, @DrawableRes int resId) {
+            mConfig = ResourceConfigKey.of(res);
+            mResId = resId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResKey)) {
+                return false;
+            }
+            final ResKey key = (ResKey) o;
+            return mResId == key.mResId && mConfig.equals(key.mConfig);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mConfig.hashCode() + mResId;
+        }
+    }
+
+    static final class AttrsKey {
+        private final ResourceConfigKey mConfig;
+        private final int mDensity;
+        private final int[] mNames;
+        private final String[] mValues;
+        private final boolean mThemed;
+        private final int mHashCode;
+
+        AttrsKey(@NonNull ResourceConfigKey config, int density, @NonNull int[] names, @NonNull String[] values,
+                 boolean themed) {
+            mConfig = config;
+            mDensity = density;
+            mNames = names;
+            mValues = values;
+            mThemed = themed;
+            int result = config.hashCode();
+            result = 31 * result + density;
+            result = 31 * result + Arrays.hashCode(names);
+            result = 31 * result + Arrays.hashCode(values);
+            mHashCode = result;
+        }
+
+        /**
+         * 有 ?attr/ 颜色, 需要不带 theme 解析, 使用时再按 theme 解析
+         */
+        boolean isThemed() {
+            return mThemed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AttrsKey)) {
+                return false;
+            }
+            final AttrsKey key = (AttrsKey) o;
+            return mHashCode == key.mHashCode && mDensity == key.mDensity && mConfig.equals(key.mConfig)
+                    && Arrays.equals(mNames, key.mNames) && Arrays.equals(mValues, key.mValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
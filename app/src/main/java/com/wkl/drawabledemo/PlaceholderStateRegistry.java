@@ -0,0 +1,74 @@
+package com.wkl.drawabledemo;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 样式完全相同的占位图共用同一个 PlaceholderState, 不管来自代码还是不同的 xml 资源
+ * 被 intern 的 state 不再修改, 使用它的 PlaceholderDrawable 修改前会先复制
+ */
+final class PlaceholderStateRegistry {
+
+    private static final int MAX_SIZE = 64;
+
+    private static final LruCache<Key, PlaceholderDrawable.PlaceholderState> sStates = new LruCache<>(MAX_SIZE);
+
+    private PlaceholderStateRegistry() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return 已经登记过的相同样式的 state, 没有时登记并返回 state 本身; 无法比较样式的 state 原样返回
+     */
+    @NonNull
+    static PlaceholderDrawable.PlaceholderState intern(@NonNull PlaceholderDrawable.PlaceholderState state) {
+        if (!state.canIntern()) {
+            return state;
+        }
+        final Key key = new Key(state);
+        synchronized (sStates) {
+            final PlaceholderDrawable.PlaceholderState interned = sStates.get(key);
+            if (interned != null) {
+                return interned;
+            }
+            sStates.put(key, state);
+            return state;
+        }
+    }
+
+    static void clear() {
+        sStates.evictAll();
+    }
+
+    private static final class Key {
+        private final PlaceholderDrawable.PlaceholderState mState;
+        private final int mHash;
+
+        Key(@NonNull PlaceholderDrawable.PlaceholderState state) {
+            mState = state;
+            mHash = state.specHashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return mHash == key.mHash && mState.specEquals(key.mState);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.wkl.drawabledemo;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.core.os.ConfigurationCompat;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 资源选择依赖的 Configuration 限定符, 用作资源相关缓存 key 的一部分
+ * 例如切换夜间模式后 @color 和 -night 的 logo 会解析成不同的值, 不能再使用之前缓存的结果
+ */
+final class ResourceConfigKey {
+
+    private final int mDensityDpi;
+    private final int mUiMode;
+    private final String mLocales;
+    private final int mOrientation;
+    private final int mScreenLayout;
+    private final int mSmallestScreenWidthDp;
+    private final int mScreenWidthDp;
+    private final int mScreenHeightDp;
+    private final int mMcc;
+    private final int mMnc;
+    private final int mTouchscreen;
+    private final int mKeyboard;
+    private final int mKeyboardHidden;
+    private final int mNavigation;
+    private final int mNavigationHidden;
+    private final int mColorMode;
+    private final int mHashCode;
+
+    private ResourceConfigKey(@NonNull Configuration config, int densityDpi) {
+        mDensityDpi = densityDpi;
+        mUiMode = config.uiMode;
+        mLocales = ConfigurationCompat.getLocales(config).toLanguageTags();
+        mOrientation = config.orientation;
+        // layoutDirection 也保存在 screenLayout 中
+        mScreenLayout = config.screenLayout;
+        mSmallestScreenWidthDp = config.smallestScreenWidthDp;
+        mScreenWidthDp = config.screenWidthDp;
+        mScreenHeightDp = config.screenHeightDp;
+        mMcc = config.mcc;
+        mMnc = config.mnc;
+        mTouchscreen = config.touchscreen;
+        mKeyboard = config.keyboard;
+        mKeyboardHidden = config.keyboardHidden;
+        mNavigation = config.navigation;
+        mNavigationHidden = config.navigationHidden;
+        mColorMode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? config.colorMode : 0;
+
+        int result = densityDpi;
+        result = 31 * result + mUiMode;
+        result = 31 * result + mLocales.hashCode();
+        result = 31 * result + mOrientation;
+        result = 31 * result + mScreenLayout;
+        result = 31 * result + mSmallestScreenWidthDp;
+        result = 31 * result + mScreenWidthDp;
+        result = 31 * result + mScreenHeightDp;
+        result = 31 * result + mMcc;
+        result = 31 * result + mMnc;
+        result = 31 * result + mTouchscreen;
+        result = 31 * result + mKeyboard;
+        result = 31 * result + mKeyboardHidden;
+        result = 31 * result + mNavigation;
+        result = 31 * result + mNavigationHidden;
+        result = 31 * result + mColorMode;
+        mHashCode = result;
+    }
+
+    @NonNull
+    static ResourceConfigKey of(@NonNull Resources res) {
+        return new ResourceConfigKey(res.getConfiguration(), res.getDisplayMetrics().densityDpi);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResourceConfigKey)) {
+            return false;
+        }
+        final ResourceConfigKey key = (ResourceConfigKey) o;
+        return mHashCode == key.mHashCode
+                && mDensityDpi == key.mDensityDpi
+                && mUiMode == key.mUiMode
+                && mOrientation == key.mOrientation
+                && mScreenLayout == key.mScreenLayout
+                && mSmallestScreenWidthDp == key.mSmallestScreenWidthDp
+                && mScreenWidthDp == key.mScreenWidthDp
+                && mScreenHeightDp == key.mScreenHeightDp
+                && mMcc == key.mMcc
+                && mMnc == key.mMnc
+                && mTouchscreen == key.mTouchscreen
+                && mKeyboard == key.mKeyboard
+                && mKeyboardHidden == key.mKeyboardHidden
+                && mNavigation == key.mNavigation
+                && mNavigationHidden == key.mNavigationHidden
+                && mColorMode == key.mColorMode
+                && mLocales.equals(key.mLocales);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHashCode;
+    }
+}
@@ -0,0 +1,91 @@
+package com.wkl.drawabledemo;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 所有 shimmer 占位图共用的帧时钟, 只在主线程使用
+ * 有可见的 shimmer 占位图时每帧回调一次, 全部移除后自动停止
+ * 动画 logo 的刷新也合并到这里, 同一帧内每个占位图最多 invalidate 一次
+ */
+final class ShimmerClock implements Choreographer.FrameCallback {
+
+    private static ShimmerClock sInstance;
+
+    private final ArrayList<PlaceholderDrawable> mDrawables = new ArrayList<>();
+    private final ArrayList<PlaceholderDrawable> mInvalidates = new ArrayList<>();
+    private long mFrameTimeNanos = System.nanoTime();
+    private boolean mPosted;
+
+    private ShimmerClock() {
+    }
+
+    @NonNull
+    static ShimmerClock get() {
+        if (sInstance == null) {
+            sInstance = new ShimmerClock();
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return 当前帧的时间, 同一帧内所有占位图拿到的值相同, 动画保持同步
+     */
+    long getFrameTimeNanos() {
+        return mFrameTimeNanos;
+    }
+
+    void register(@NonNull PlaceholderDrawable drawable) {
+        if (!mDrawables.contains(drawable)) {
+            mDrawables.add(drawable);
+        }
+        postFrame();
+    }
+
+    void unregister(@NonNull PlaceholderDrawable drawable) {
+        mDrawables.remove(drawable);
+    }
+
+    /**
+     * 在下一帧 invalidate, 多次请求只算一次
+     */
+    void requestInvalidate(@NonNull PlaceholderDrawable drawable) {
+        if (!mInvalidates.contains(drawable)) {
+            mInvalidates.add(drawable);
+        }
+        postFrame();
+    }
+
+    private void postFrame() {
+        if (!mPosted) {
+            mPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mPosted = false;
+        mFrameTimeNanos = frameTimeNanos;
+        // 倒序遍历, 回调中可能会 unregister
+        for (int i = mDrawables.size() - 1; i >= 0; i--) {
+            mDrawables.get(i).onShimmerFrame();
+        }
+        // 被帧率限制推迟的留到之后的帧
+        for (int i = mInvalidates.size() - 1; i >= 0; i--) {
+            if (mInvalidates.get(i).onLogoFrame(frameTimeNanos)) {
+                mInvalidates.remove(i);
+            }
+        }
+        if (!mDrawables.isEmpty() || !mInvalidates.isEmpty()) {
+            postFrame();
+        }
+    }
+}
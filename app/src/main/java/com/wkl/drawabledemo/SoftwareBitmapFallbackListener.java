@@ -0,0 +1,91 @@
+package com.wkl.drawabledemo;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.CustomViewTarget;
+import com.bumptech.glide.request.target.PreloadTarget;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.target.ViewTarget;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * HARDWARE 位图的兜底: 目标不是硬件加速的 View (CustomTarget, RemoteViews, 软件 layer 的 View) 时,
+ * 拦截这次回调, 把 ARGB_8888 的拷贝交给 target, 避免绘制到软件 Canvas 或者读取像素时崩溃
+ * 拷贝需要从 GPU 读回整张图, 只是兜底, 这类请求应该直接使用 {@link BitmapPolicyExtension#softwareBitmap}
+ * submit() 的 FutureTarget 通过自己的 listener 拿结果, 这里无法替换, 必须使用 softwareBitmap()
+ */
+final class SoftwareBitmapFallbackListener implements RequestListener<Object> {
+
+    private static final String TAG = "SoftwareBitmapFallback";
+
+    private final Resources mResources;
+
+    SoftwareBitmapFallbackListener(@NonNull Context context) {
+        mResources = context.getApplicationContext().getResources();
+    }
+
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Object> target,
+                                boolean isFirstResource) {
+        return false;
+    }
+
+    @Override
+    public boolean onResourceReady(Object resource, Object model, Target<Object> target,
+                                   DataSource dataSource, boolean isFirstResource) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || !needsSoftware(target)) {
+            return false;
+        }
+        final Bitmap bitmap;
+        if (resource instanceof Bitmap) {
+            bitmap = (Bitmap) resource;
+        } else if (resource instanceof BitmapDrawable) {
+            bitmap = ((BitmapDrawable) resource).getBitmap();
+        } else {
+            return false;
+        }
+        if (bitmap == null || bitmap.isRecycled() || bitmap.getConfig() != Bitmap.Config.HARDWARE) {
+            return false;
+        }
+        final Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+        if (copy == null) {
+            return false;
+        }
+        Log.w(TAG, "HARDWARE bitmap delivered to " + target.getClass().getName()
+                + ", use softwareBitmap() for " + model);
+        // 拷贝不属于 Glide, 不会进入 BitmapPool, target 不再使用后由 GC 回收
+        target.onResourceReady(resource instanceof Bitmap ? copy : new BitmapDrawable(mResources, copy), null);
+        return true;
+    }
+
+    private static boolean needsSoftware(@NonNull Target<?> target) {
+        if (target instanceof PreloadTarget || target instanceof FutureTarget) {
+            return false;
+        }
+        final View view;
+        if (target instanceof ViewTarget) {
+            view = ((ViewTarget<?, ?>) target).getView();
+        } else if (target instanceof CustomViewTarget) {
+            view = ((CustomViewTarget<?, ?>) target).getView();
+        } else {
+            return true;
+        }
+        return view.getLayerType() == View.LAYER_TYPE_SOFTWARE;
+    }
+}
@@ -0,0 +1,59 @@
+package com.wkl.drawabledemo;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * 统计当前线程执行操作时分配的字节数, 依赖 HotSpot 的 com.sun.management.ThreadMXBean
+ * 读取计数本身也会分配少量对象, 先用空操作校准后再扣除
+ */
+final class AllocationCounter {
+
+    private static final int WARMUP_OPS = 2000;
+
+    private final com.sun.management.ThreadMXBean mBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long mThreadId = Thread.currentThread().getId();
+    private final long mOverhead;
+
+    interface Op {
+        /**
+         * @return 这次调用的结果, 只有副作用的 op 返回 null
+         */
+        Object run() throws Exception;
+    }
+
+    AllocationCounter() throws Exception {
+        mBean.setThreadAllocatedMemoryEnabled(true);
+        final Op empty = new Op() {
+            @Override
+            public Object run() {
+                return null;
+            }
+        };
+        measureTotal(empty, 1);
+        mOverhead = measureTotal(empty, 1);
+    }
+
+    /**
+     * 预热后执行 ops 次, 返回总共分配的字节数
+     * 不除以 ops: 不是每次都分配的情况 (例如每 100 次扩容一次) 平均下来会被整数除法抹成 0
+     */
+    long totalBytes(Op op, int ops) throws Exception {
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            op.run();
+        }
+        return Math.max(0, measureTotal(op, ops) - mOverhead);
+    }
+
+    private long measureTotal(Op op, int ops) throws Exception {
+        final long start = mBean.getThreadAllocatedBytes(mThreadId);
+        for (int i = 0; i < ops; i++) {
+            op.run();
+        }
+        return mBean.getThreadAllocatedBytes(mThreadId) - start;
+    }
+}
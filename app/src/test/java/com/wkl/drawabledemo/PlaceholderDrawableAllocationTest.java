@@ -0,0 +1,156 @@
+package com.wkl.drawabledemo;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 热路径的分配预算, draw / setAlpha / setBounds / onStateChange 稳定后 {@link #OPS} 次总共不允许分配对象,
+ * newDrawable 平均不超过 {@link #NEW_DRAWABLE_BUDGET} 字节且相同 density 时不复制 state, 超出时测试失败
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PlaceholderDrawableAllocationTest {
+
+    private static final int OPS = 10000;
+    /**
+     * PlaceholderDrawable 本身, 几何缓存 (Path / RectF / Rect) 以及 logo 的 BitmapDrawable 实例,
+     * Paint 等只在用到时才创建, 不在这个预算内
+     */
+    private static final long NEW_DRAWABLE_BUDGET = 4 * 1024;
+
+    private AllocationCounter mCounter;
+    private PlaceholderDrawable mDrawable;
+
+    @Before
+    public void setUp() throws Exception {
+        mCounter = new AllocationCounter();
+        Context context = ApplicationProvider.getApplicationContext();
+        mDrawable = (PlaceholderDrawable) PlaceholderDrawable.create(context, R.drawable.common_default_img);
+        mDrawable.setBounds(0, 0, 300, 540);
+    }
+
+    @Test
+    public void drawDoesNotAllocate() throws Exception {
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(300, 540, Bitmap.Config.ARGB_8888));
+        assertEquals(0, mCounter.totalBytes(new AllocationCounter.Op() {
+            @Override
+            public Object run() {
+                mDrawable.draw(canvas);
+                return null;
+            }
+        }, OPS));
+    }
+
+    @Test
+    public void drawRadiiDoesNotAllocate() throws Exception {
+        mDrawable.setCornerRadii(new float[]{30, 30, 0, 0, 30, 30, 0, 0});
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(300, 540, Bitmap.Config.ARGB_8888));
+        assertEquals(0, mCounter.totalBytes(new AllocationCounter.Op() {
+            @Override
+            public Object run() {
+                mDrawable.draw(canvas);
+                return null;
+            }
+        }, OPS));
+    }
+
+    @Test
+    public void setAlphaDoesNotAllocate() throws Exception {
+        assertEquals(0, mCounter.totalBytes(new AllocationCounter.Op() {
+            private boolean mToggle;
+
+            @Override
+            public Object run() {
+                mToggle = !mToggle;
+                mDrawable.setAlpha(mToggle ? 0x80 : 0xFF);
+                return null;
+            }
+        }, OPS));
+    }
+
+    @Test
+    public void setBoundsDoesNotAllocate() throws Exception {
+        assertEquals(0, mCounter.totalBytes(new AllocationCounter.Op() {
+            private boolean mToggle;
+
+            @Override
+            public Object run() {
+                mToggle = !mToggle;
+                mDrawable.setBounds(0, 0, mToggle ? 300 : 320, 540);
+                return null;
+            }
+        }, OPS));
+    }
+
+    @Test
+    public void setStateDoesNotAllocate() throws Exception {
+        final int[] pressed = {android.R.attr.state_pressed};
+        final int[] normal = {};
+        // 资源中的 logo 不是 stateful 的, 换成 StateListDrawable 才会真正走到 logo 的状态切换
+        final StateListDrawable logo = new StateListDrawable();
+        logo.addState(pressed, new ColorDrawable(Color.RED));
+        logo.addState(normal, new ColorDrawable(Color.BLUE));
+        final Resources res = ApplicationProvider.getApplicationContext().getResources();
+        final PlaceholderDrawable drawable = new PlaceholderDrawable.Builder(res)
+                .setColor(Color.LTGRAY)
+                .setLogo(logo)
+                .build();
+        drawable.setBounds(0, 0, 300, 540);
+        assertTrue(drawable.isStateful());
+        assertTrue(drawable.setState(pressed));
+        assertTrue(drawable.setState(normal));
+        assertEquals(0, mCounter.totalBytes(new AllocationCounter.Op() {
+            private boolean mToggle;
+
+            @Override
+            public Object run() {
+                mToggle = !mToggle;
+                drawable.setState(mToggle ? pressed : normal);
+                return null;
+            }
+        }, OPS));
+    }
+
+    @Test
+    public void newDrawableWithinBudget() throws Exception {
+        final Drawable.ConstantState state = mDrawable.getConstantState();
+        final Resources res = ApplicationProvider.getApplicationContext().getResources();
+        final int ops = 1000;
+        final PlaceholderMetrics.Recorder recorder = new PlaceholderMetrics.Recorder();
+        PlaceholderMetrics.setListener(recorder);
+        final long bytes;
+        try {
+            bytes = mCounter.totalBytes(new AllocationCounter.Op() {
+                @Override
+                public Object run() {
+                    return state.newDrawable(res);
+                }
+            }, ops);
+        } finally {
+            PlaceholderMetrics.setListener(null);
+        }
+        // 相同 density 直接共享 state, 只复制 logo
+        assertEquals(0, recorder.getStateClones().get());
+        assertTrue("newDrawable allocates " + bytes + " bytes in " + ops + " ops, budget "
+                + NEW_DRAWABLE_BUDGET + " per op", bytes <= NEW_DRAWABLE_BUDGET * ops);
+    }
+}
@@ -0,0 +1,81 @@
+package com.wkl.drawabledemo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 基准测试, 默认不随 test 执行, 使用 ./gradlew :app:testDebugUnitTest -Pbenchmark 运行
+ * {@link PlaceholderDrawableJmh} 的结果写入 app/build/benchmark/placeholder.json, enject 首次注册的耗时写入 enject.json
+ * JMH 以 forks(0) 在 Robolectric 沙箱内运行, 不隔离 jvm, 结果只适合同一台机器上前后对比
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PlaceholderDrawableBenchmark {
+
+    private static final File OUT_DIR = new File("build/benchmark");
+
+    @Test
+    public void placeholder() throws Exception {
+        mkdirs(OUT_DIR);
+        Options options = new OptionsBuilder()
+                .include(PlaceholderDrawableJmh.class.getName())
+                .forks(0)
+                .threads(1)
+                .warmupIterations(5)
+                .warmupTime(TimeValue.milliseconds(200))
+                .measurementIterations(10)
+                .measurementTime(TimeValue.milliseconds(200))
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(OUT_DIR, "placeholder.json").getPath())
+                .build();
+        assertFalse(new Runner(options).run().isEmpty());
+    }
+
+    /**
+     * enject 只有第一次是真正的注册, 之后都是一次 volatile 读, 无法重复测量;
+     * 取 {@link DrawableEnjector#getEnjectCostNanos()} 记录的首次注册耗时 (可能已由 DemoApplication 在子线程完成)
+     */
+    @Test
+    public void enjectColdPath() throws Exception {
+        DrawableEnjector.enject();
+        final long cost = DrawableEnjector.getEnjectCostNanos();
+        assertTrue("enject did not record its cost", cost >= 0);
+        mkdirs(OUT_DIR);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(OUT_DIR, "enject.json")),
+                Charset.forName("UTF-8"))) {
+            writer.write(String.format(Locale.US,
+                    "[\n  {\"benchmark\": \"enject\", \"mode\": \"ss\", \"unit\": \"ns/op\", \"score\": %d}\n]\n",
+                    cost));
+        }
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can not create " + dir);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.wkl.drawabledemo;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.Xml;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Created by <a href="mailto:wangkunlin1992@gmail.com">Wang kunlin</a>
+ * <p>
+ * On 2019-07-02
+ * <p>
+ * JMH 基准测试, 需要 Robolectric 提供的 android 类, 只能由 {@link PlaceholderDrawableBenchmark} 以 forks(0) 在沙箱中运行
+ * 返回值交给 JMH 的 Blackhole 消费
+ */
+public class PlaceholderDrawableJmh {
+
+    private static Context context() {
+        return ApplicationProvider.getApplicationContext();
+    }
+
+    static PlaceholderDrawable inflate(Resources res) throws Exception {
+        XmlResourceParser parser = res.getXml(R.drawable.common_default_img);
+        try {
+            int type;
+            //noinspection StatementWithEmptyBody
+            while ((type = parser.next()) != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT) {
+            }
+            AttributeSet attrs = Xml.asAttributeSet(parser);
+            return PlaceholderDrawable.createFromXmlInner(res, parser, attrs, null);
+        } finally {
+            parser.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DrawState {
+        @Param({"radius", "radii", "noRadius"})
+        public String mShape;
+
+        PlaceholderDrawable mDrawable;
+        Canvas mCanvas;
+
+        @Setup
+        public void setUp() throws Exception {
+            mDrawable = inflate(context().getResources());
+            if ("radii".equals(mShape)) {
+                mDrawable.setCornerRadii(new float[]{30, 30, 0, 0, 30, 30, 0, 0});
+            } else if ("noRadius".equals(mShape)) {
+                mDrawable.setCornerRadius(0);
+            }
+            mDrawable.setBounds(0, 0, 300, 540);
+            mCanvas = new Canvas(Bitmap.createBitmap(300, 540, Bitmap.Config.ARGB_8888));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class InflateState {
+        Resources mResources;
+
+        @Setup
+        public void setUp() throws Exception {
+            mResources = context().getResources();
+            // 先解析一次, 之后都命中 PlaceholderStateCache
+            inflate(mResources);
+        }
+    }
+
+    /**
+     * 每次调用前清空 PlaceholderStateCache, 测量完整解析 xml 的耗时
+     */
+    @State(Scope.Thread)
+    public static class ColdInflateState {
+        Resources mResources;
+
+        @Setup
+        public void setUp() {
+            mResources = context().getResources();
+        }
+
+        @Setup(Level.Invocation)
+        public void clearCache() {
+            PlaceholderStateCache.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MutateState {
+        Drawable.ConstantState mState;
+
+        @Setup
+        public void setUp() throws Exception {
+            mState = inflate(context().getResources()).getConstantState();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DensityState {
+        @Param({"160", "320", "480"})
+        public int mDensity;
+
+        Drawable.ConstantState mState;
+        Resources mResources;
+
+        @Setup
+        public void setUp() throws Exception {
+            mState = inflate(context().getResources()).getConstantState();
+            Configuration config = new Configuration(context().getResources().getConfiguration());
+            config.densityDpi = mDensity;
+            mResources = context().createConfigurationContext(config).getResources();
+        }
+    }
+
+    @Benchmark
+    public Canvas draw(DrawState state) {
+        state.mDrawable.draw(state.mCanvas);
+        return state.mCanvas;
+    }
+
+    @Benchmark
+    public Drawable createFromXmlInnerCacheHit(InflateState state) throws Exception {
+        return inflate(state.mResources);
+    }
+
+    @Benchmark
+    public Drawable createFromXmlInnerCacheMiss(ColdInflateState state) throws Exception {
+        return inflate(state.mResources);
+    }
+
+    @Benchmark
+    public Drawable mutate(MutateState state) {
+        return state.mState.newDrawable().mutate();
+    }
+
+    @Benchmark
+    public Drawable newDrawable(DensityState state) {
+        return state.mState.newDrawable(state.mResources);
+    }
+}